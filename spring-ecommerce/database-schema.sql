@@ -25,8 +25,11 @@ CREATE TABLE IF NOT EXISTS product (
     stock INT DEFAULT 0 NOT NULL,
     sizes VARCHAR(255),
     version BIGINT DEFAULT 0,
+    flash_shards INT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    FOREIGN KEY (vendor_id) REFERENCES user(userid) ON DELETE CASCADE
+    FOREIGN KEY (vendor_id) REFERENCES user(userid) ON DELETE CASCADE,
+    INDEX idx_product_price_pid (price, pid),
+    INDEX idx_product_name_pid (name, pid)
 );
 
 -- Cart table
@@ -52,8 +55,18 @@ CREATE TABLE IF NOT EXISTS orders (
     size VARCHAR(10),
     order_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     status ENUM('PENDING', 'DELIVERED', 'CANCELLED') DEFAULT 'PENDING',
+    reservation ENUM('HELD', 'CONSUMED', 'RELEASED'),
+    reserved_until DATETIME(6),
+    intake_ref VARCHAR(36),
+    vendor_id BIGINT,
     FOREIGN KEY (userid) REFERENCES user(userid) ON DELETE CASCADE,
-    FOREIGN KEY (pid) REFERENCES product(pid) ON DELETE CASCADE
+    FOREIGN KEY (pid) REFERENCES product(pid) ON DELETE CASCADE,
+    INDEX idx_orders_reservation_expiry (reservation, reserved_until),
+    INDEX idx_orders_intake_ref (intake_ref),
+    INDEX idx_orders_user_date (userid, order_date, id),
+    INDEX idx_orders_user_status_date (userid, status, order_date, id),
+    INDEX idx_orders_vendor_date (vendor_id, order_date, id),
+    INDEX idx_orders_vendor_status_date (vendor_id, status, order_date, id)
 );
 
 -- Wishlist table
@@ -79,3 +92,19 @@ CREATE TABLE IF NOT EXISTS review (
     FOREIGN KEY (pid) REFERENCES product(pid) ON DELETE CASCADE,
     UNIQUE KEY unique_user_product_review (userid, pid)
 );
+
+-- Accepted async checkouts whose orders are not saved yet; leftovers are replayed
+CREATE TABLE IF NOT EXISTS order_intake (
+    reference VARCHAR(36) PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    order_lines TEXT NOT NULL,
+    reserved_until DATETIME(6),
+    created_at DATETIME(6) NOT NULL,
+    INDEX idx_order_intake_created (created_at)
+);
+
+-- Pooled id blocks for cart, orders, review, wishlist and product
+CREATE TABLE IF NOT EXISTS id_generators (
+    entity VARCHAR(255) PRIMARY KEY,
+    next_val BIGINT
+);
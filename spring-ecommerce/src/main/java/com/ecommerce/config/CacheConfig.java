@@ -1,5 +1,6 @@
 package com.ecommerce.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -7,18 +8,50 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
     
+    @Value("${cache.near.caches:product,products,productCount}")
+    private List<String> nearCacheNames;
+    
+    @Value("${cache.near.max-size:10000}")
+    private long nearCacheMaxSize;
+    
+    @Value("${cache.near.ttl-seconds:60}")
+    private long nearCacheTtlSeconds;
+    
+    @Value("${cache.near.refresh-after-seconds:45}")
+    private long nearCacheRefreshAfterSeconds;
+    
+    @Bean
+    public CacheInvalidationPublisher cacheInvalidationPublisher(RedisConnectionFactory connectionFactory) {
+        return new CacheInvalidationPublisher(new StringRedisTemplate(connectionFactory));
+    }
+    
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory, CacheInvalidationPublisher cacheInvalidationPublisher) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheInvalidationPublisher, new ChannelTopic(CacheInvalidationPublisher.CHANNEL));
+        return container;
+    }
+    
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     CacheInvalidationPublisher cacheInvalidationPublisher) {
         // Default configuration - 10 minutes TTL
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(10))
@@ -40,6 +73,10 @@ public class CacheConfig {
         cacheConfigurations.put("product", 
             defaultConfig.entryTtl(Duration.ofMinutes(30)));
         
+        // Product count - 5 minutes (only shown as an approximate total while browsing)
+        cacheConfigurations.put("productCount", 
+            defaultConfig.entryTtl(Duration.ofMinutes(5)));
+        
         // Wishlist - 15 minutes (user-specific, moderate change frequency)
         cacheConfigurations.put("wishlist", 
             defaultConfig.entryTtl(Duration.ofMinutes(15)));
@@ -48,10 +85,18 @@ public class CacheConfig {
         cacheConfigurations.put("cart", 
             defaultConfig.entryTtl(Duration.ofMinutes(10)));
         
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
-                .transactionAware() // Ensures cache operations are part of transactions
                 .build();
+        redisCacheManager.afterPropertiesSet();
+        
+        // In-heap L1 in front of Redis for hot caches; evictions fan out over pub/sub
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, cacheInvalidationPublisher,
+                new HashSet<>(nearCacheNames), nearCacheMaxSize, Duration.ofSeconds(nearCacheTtlSeconds),
+                Duration.ofSeconds(nearCacheRefreshAfterSeconds));
+        cacheManager.setTransactionAware(true); // Ensures cache operations are part of transactions
+        cacheInvalidationPublisher.setCacheManager(cacheManager);
+        return cacheManager;
     }
 }
@@ -0,0 +1,70 @@
+package com.ecommerce.config;
+
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+public class CacheInvalidationPublisher implements MessageListener {
+    
+    public static final String CHANNEL = "cache:invalidate";
+    private static final String CLEAR_ALL = "*";
+    private static final char SEPARATOR = '|';
+    
+    private final String nodeId = UUID.randomUUID().toString();
+    private final StringRedisTemplate redisTemplate;
+    private CacheManager cacheManager;
+    
+    public CacheInvalidationPublisher(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+    
+    public void setCacheManager(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+    
+    public void publishEvict(String cacheName, String key) {
+        publish(cacheName + SEPARATOR + key);
+    }
+    
+    public void publishClear(String cacheName) {
+        publish(cacheName + SEPARATOR + CLEAR_ALL);
+    }
+    
+    private void publish(String payload) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, nodeId + SEPARATOR + payload);
+        } catch (Exception e) {
+            // Remote L1 copies still expire on their own TTL
+            System.err.println("Cache invalidation publish failed: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int first = body.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : body.indexOf(SEPARATOR, first + 1);
+        if (second < 0 || cacheManager == null) return;
+        
+        String sender = body.substring(0, first);
+        if (nodeId.equals(sender)) return;
+        
+        String cacheName = body.substring(first + 1, second);
+        String key = body.substring(second + 1);
+        org.springframework.cache.Cache cache = cacheManager.getCache(cacheName);
+        if (cache instanceof org.springframework.cache.transaction.TransactionAwareCacheDecorator decorator) {
+            cache = decorator.getTargetCache();
+        }
+        if (cache instanceof TwoLevelCache twoLevelCache) {
+            if (CLEAR_ALL.equals(key)) {
+                twoLevelCache.clearLocal();
+            } else {
+                twoLevelCache.evictLocal(key);
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.ecommerce.config;
 
+import com.ecommerce.dto.AuthenticatedUser;
 import com.ecommerce.service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,23 +26,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                   FilterChain filterChain) throws ServletException, IOException {
         
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String email = null;
-
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
+        
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String token = authHeader.substring(7);
+            Claims claims = null;
             try {
-                email = jwtService.extractEmail(token);
+                // Single verification per request; controllers hit the verified-claims cache afterwards
+                claims = jwtService.extractClaims(token);
             } catch (Exception e) {
                 System.err.println("JWT extraction error: " + e.getMessage());
             }
-        }
-
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtService.validateToken(token, email)) {
-                String userType = jwtService.extractClaims(token).get("userType", String.class);
+            
+            // Refresh tokens are only good at /api/auth/refresh; as bearer credentials they would
+            // outlive their revocation
+            if (claims != null && claims.getSubject() != null
+                    && "ACCESS".equals(claims.get("tokenType", String.class))) {
+                String userType = claims.get("userType", String.class);
+                // Principal carries id/email/role straight from the claims - no user lookup per request
                 UsernamePasswordAuthenticationToken authToken = 
-                    new UsernamePasswordAuthenticationToken(email, null, 
+                    new UsernamePasswordAuthenticationToken(AuthenticatedUser.fromClaims(claims), null, 
                         java.util.Collections.singletonList(new org.springframework.security.core.authority.SimpleGrantedAuthority("ROLE_" + userType)));
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
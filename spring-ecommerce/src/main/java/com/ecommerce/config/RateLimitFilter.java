@@ -0,0 +1,148 @@
+package com.ecommerce.config;
+
+import com.ecommerce.dto.AuthenticatedUser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Token-bucket limiter keyed by user id (from the JWT principal) or client IP. Runs in the
+// security chain right after JWT authentication, before any controller touches the DB or Redis.
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled;
+
+    // pattern=capacity/refillPerSecond, first match wins
+    @Value("${rate-limit.routes:}")
+    private String routeConfig;
+
+    @Value("${rate-limit.max-buckets:100000}")
+    private long maxBuckets;
+
+    // Only honour X-Forwarded-For behind a proxy that sets it; otherwise clients could pick their own key
+    @Value("${rate-limit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    @Value("${rate-limit.redis.enabled:false}")
+    private boolean redisEnabled;
+
+    private static final String REDIS_KEY_PREFIX = "ratelimit:";
+
+    // Fixed one-second window shared by all nodes; only consulted once the local bucket has passed
+    private static final RedisScript<Long> WINDOW_SCRIPT = new DefaultRedisScript<>(
+            "local count = redis.call('INCR', KEYS[1]) " +
+            "if count == 1 then redis.call('PEXPIRE', KEYS[1], 1000) end " +
+            "return count", Long.class);
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<Route> routes = new ArrayList<>();
+    private Cache<String, TokenBucket> buckets;
+
+    private record Route(int index, String pattern, int capacity, int refillPerSecond) {}
+
+    @PostConstruct
+    public void init() {
+        for (String entry : routeConfig.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) continue;
+            String[] patternAndLimit = trimmed.split("=");
+            String[] limit = patternAndLimit[1].split("/");
+            routes.add(new Route(routes.size(), patternAndLimit[0].trim(),
+                    Integer.parseInt(limit[0].trim()), Integer.parseInt(limit[1].trim())));
+        }
+        // Bounded: idle clients age out and a flood of distinct IPs can't grow the map without limit
+        buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Route route = enabled ? match(request.getRequestURI()) : null;
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = route.index() + ":" + clientKey(request);
+        long now = System.currentTimeMillis();
+        TokenBucket bucket = buckets.get(key, k -> new TokenBucket(route.capacity(), route.refillPerSecond(), now));
+
+        if (!bucket.tryConsume(now) || !allowedAcrossNodes(key, route)) {
+            reject(response, bucket.secondsUntilNextToken());
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private Route match(String path) {
+        for (Route route : routes) {
+            if (pathMatcher.match(route.pattern(), path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user
+                && user.getUserId() != null) {
+            return "u" + user.getUserId();
+        }
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (trustForwardedFor && forwarded != null && !forwarded.isBlank()) {
+            int comma = forwarded.indexOf(',');
+            return "ip" + (comma > 0 ? forwarded.substring(0, comma) : forwarded).trim();
+        }
+        return "ip" + request.getRemoteAddr();
+    }
+
+    private boolean allowedAcrossNodes(String key, Route route) {
+        if (!redisEnabled) return true;
+        try {
+            Long count = stringRedisTemplate.execute(WINDOW_SCRIPT, List.of(REDIS_KEY_PREFIX + key));
+            return count == null || count <= Math.max(route.capacity(), route.refillPerSecond());
+        } catch (Exception e) {
+            // Fail open: the local bucket still applies
+            System.err.println("Rate limit Redis check failed: " + e.getMessage());
+            return true;
+        }
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"success\":false,\"message\":\"Too many requests\",\"data\":null}");
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecommerce.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket. Timestamp and balance share one long so a refill-and-take is a
+// single CAS: high 40 bits = millis since the bucket's epoch, low 24 bits = milli-tokens.
+public class TokenBucket {
+
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long ONE_TOKEN = 1000;
+
+    // Largest capacity that fits the 24-bit milli-token field
+    public static final int MAX_CAPACITY = (int) (TOKEN_MASK / ONE_TOKEN);
+
+    private final long capacityMilli;
+    private final long refillPerSecond;
+    private final long epochMillis;
+    private final AtomicLong state;
+
+    public TokenBucket(int capacity, int refillPerSecond, long nowMillis) {
+        this.capacityMilli = Math.min(capacity, MAX_CAPACITY) * ONE_TOKEN;
+        this.refillPerSecond = refillPerSecond;
+        this.epochMillis = nowMillis;
+        this.state = new AtomicLong(capacityMilli);
+    }
+
+    public boolean tryConsume(long nowMillis) {
+        long now = Math.max(0, nowMillis - epochMillis);
+        while (true) {
+            long current = state.get();
+            long last = current >>> TOKEN_BITS;
+            long tokens = current & TOKEN_MASK;
+
+            // refillPerSecond tokens/s == refillPerSecond milli-tokens/ms
+            long elapsed = Math.max(0, now - last);
+            long refill = refillPerSecond == 0 ? 0
+                    : elapsed >= capacityMilli ? capacityMilli : elapsed * refillPerSecond;
+            long available = Math.min(capacityMilli, tokens + refill);
+            if (available < ONE_TOKEN) {
+                return false;
+            }
+
+            long next = (Math.max(now, last) << TOKEN_BITS) | (available - ONE_TOKEN);
+            if (state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    // Seconds until one token is available again (for Retry-After)
+    public long secondsUntilNextToken() {
+        long tokens = state.get() & TOKEN_MASK;
+        if (tokens >= ONE_TOKEN || refillPerSecond <= 0) return 1;
+        long millis = (ONE_TOKEN - tokens + refillPerSecond - 1) / refillPerSecond;
+        return Math.max(1, (millis + 999) / 1000);
+    }
+}
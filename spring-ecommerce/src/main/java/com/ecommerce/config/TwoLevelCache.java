@@ -0,0 +1,215 @@
+package com.ecommerce.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+public class TwoLevelCache implements org.springframework.cache.Cache {
+    
+    private final String name;
+    private final Cache<String, LocalEntry> localCache;
+    private final org.springframework.cache.Cache remoteCache;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final long refreshAfterMillis;
+    private final Executor refreshExecutor;
+    
+    // One load per key at a time; concurrent callers wait on the same future
+    private final Map<String, Load> inFlight = new ConcurrentHashMap<>();
+    
+    public TwoLevelCache(String name, Cache<String, LocalEntry> localCache,
+                         org.springframework.cache.Cache remoteCache,
+                         CacheInvalidationPublisher invalidationPublisher,
+                         long refreshAfterMillis, Executor refreshExecutor) {
+        this.name = name;
+        this.localCache = localCache;
+        this.remoteCache = remoteCache;
+        this.invalidationPublisher = invalidationPublisher;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.refreshExecutor = refreshExecutor;
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public Object getNativeCache() {
+        return remoteCache.getNativeCache();
+    }
+    
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        LocalEntry entry = localCache.getIfPresent(localKey);
+        if (entry != null) {
+            return new SimpleValueWrapper(entry.value);
+        }
+        
+        ValueWrapper remoteValue = remoteCache.get(key);
+        if (remoteValue != null && remoteValue.get() != null) {
+            localCache.put(localKey, new LocalEntry(remoteValue.get()));
+        }
+        return remoteValue;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        LocalEntry entry = localCache.getIfPresent(localKey);
+        if (entry != null) {
+            // Refresh-ahead: reload hot entries in the background before they expire
+            if (System.currentTimeMillis() - entry.loadedAt > refreshAfterMillis) {
+                refreshAsync(key, valueLoader);
+            }
+            return (T) entry.value;
+        }
+        
+        Load load = new Load();
+        Load existing = inFlight.putIfAbsent(localKey, load);
+        if (existing != null) {
+            return (T) join(existing, key, valueLoader);
+        }
+        
+        try {
+            Object value;
+            ValueWrapper remoteValue = remoteCache.get(key);
+            if (remoteValue != null && remoteValue.get() != null) {
+                value = remoteValue.get();
+                localCache.put(localKey, new LocalEntry(value));
+            } else {
+                value = valueLoader.call();
+                storeIfNotInvalidated(key, value, load);
+            }
+            load.complete(value);
+            return (T) value;
+        } catch (Exception e) {
+            load.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlight.remove(localKey, load);
+        }
+    }
+    
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) return;
+        remoteCache.put(key, value);
+        localCache.put(localKey(key), new LocalEntry(value));
+        // Other nodes may hold an older copy of this entry in their L1
+        invalidationPublisher.publishEvict(name, localKey(key));
+    }
+    
+    @Override
+    public void evict(Object key) {
+        invalidateLoad(localKey(key));
+        remoteCache.evict(key);
+        localCache.invalidate(localKey(key));
+        invalidationPublisher.publishEvict(name, localKey(key));
+    }
+    
+    @Override
+    public void clear() {
+        inFlight.values().forEach(Load::invalidate);
+        remoteCache.clear();
+        localCache.invalidateAll();
+        invalidationPublisher.publishClear(name);
+    }
+    
+    // Called for invalidations published by other nodes
+    public void evictLocal(String key) {
+        invalidateLoad(key);
+        localCache.invalidate(key);
+    }
+    
+    public void clearLocal() {
+        inFlight.values().forEach(Load::invalidate);
+        localCache.invalidateAll();
+    }
+    
+    private <T> void refreshAsync(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        Load refresh = new Load();
+        if (inFlight.putIfAbsent(localKey, refresh) != null) return;
+        
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    Object value = valueLoader.call();
+                    storeIfNotInvalidated(key, value, refresh);
+                    refresh.complete(value);
+                } catch (Exception e) {
+                    // The current entry keeps serving until it expires
+                    refresh.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(localKey, refresh);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(localKey, refresh);
+        }
+    }
+    
+    // A loaded value is whatever the source holds now, so unlike put() it doesn't evict other
+    // nodes' copies; they reload on their own schedule
+    private void storeIfNotInvalidated(Object key, Object value, Load load) {
+        if (value != null && !load.invalidated) {
+            remoteCache.put(key, value);
+            localCache.put(localKey(key), new LocalEntry(value));
+        }
+    }
+    
+    // An evict while this key is loading means the load may have read the old value
+    private void invalidateLoad(String localKey) {
+        Load load = inFlight.get(localKey);
+        if (load != null) load.invalidate();
+    }
+    
+    private <T> Object join(CompletableFuture<Object> load, Object key, Callable<T> valueLoader) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+    
+    private String localKey(Object key) {
+        return String.valueOf(key);
+    }
+    
+    private static final class Load extends CompletableFuture<Object> {
+        private volatile boolean invalidated;
+        
+        void invalidate() {
+            invalidated = true;
+        }
+    }
+    
+    public static final class LocalEntry {
+        private final Object value;
+        private final long loadedAt = System.currentTimeMillis();
+        
+        public LocalEntry(Object value) {
+            this.value = value;
+        }
+    }
+}
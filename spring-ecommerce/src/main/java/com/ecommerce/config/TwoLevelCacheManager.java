@@ -0,0 +1,62 @@
+package com.ecommerce.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager {
+    
+    private final CacheManager remoteCacheManager;
+    private final CacheInvalidationPublisher invalidationPublisher;
+    private final Set<String> nearCacheNames;
+    private final long maximumSize;
+    private final Duration localTtl;
+    private final Duration refreshAfter;
+    
+    // Small bounded pool for refresh-ahead loads; when it is saturated the refresh is simply skipped
+    private final ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(1000), runnable -> {
+                Thread thread = new Thread(runnable, "cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+    
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, CacheInvalidationPublisher invalidationPublisher,
+                                Set<String> nearCacheNames, long maximumSize, Duration localTtl, Duration refreshAfter) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.invalidationPublisher = invalidationPublisher;
+        this.nearCacheNames = nearCacheNames;
+        this.maximumSize = maximumSize;
+        this.localTtl = localTtl;
+        this.refreshAfter = refreshAfter;
+    }
+    
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return Collections.emptyList();
+    }
+    
+    @Override
+    protected Cache getMissingCache(String name) {
+        Cache remoteCache = remoteCacheManager.getCache(name);
+        if (remoteCache == null || !nearCacheNames.contains(name)) {
+            return remoteCache;
+        }
+        
+        com.github.benmanes.caffeine.cache.Cache<String, TwoLevelCache.LocalEntry> localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(localTtl)
+                .build();
+        return new TwoLevelCache(name, localCache, remoteCache, invalidationPublisher,
+                refreshAfter.toMillis(), refreshExecutor);
+    }
+}
@@ -7,8 +7,11 @@ import com.ecommerce.dto.TokenResponse;
 import com.ecommerce.service.AuthService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -23,6 +26,8 @@ public class AuthController {
         try {
             String message = authService.register(request);
             return ResponseEntity.ok(ApiResponse.success(message));
+        } catch (RejectedExecutionException e) {
+            return busy(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
@@ -33,6 +38,8 @@ public class AuthController {
         try {
             TokenResponse tokens = authService.login(request);
             return ResponseEntity.ok(ApiResponse.success("Login successful", tokens));
+        } catch (RejectedExecutionException e) {
+            return busy(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
@@ -47,4 +54,21 @@ public class AuthController {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<String>> logout(@RequestBody String refreshToken) {
+        try {
+            authService.logout(refreshToken);
+            return ResponseEntity.ok(ApiResponse.success("Logged out"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    // Password hashing pool is saturated - fail fast so the client backs off
+    private <T> ResponseEntity<ApiResponse<T>> busy(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ApiResponse.error(e.getMessage()));
+    }
 }
\ No newline at end of file
@@ -1,11 +1,12 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.config.CurrentUser;
 import com.ecommerce.dto.ApiResponse;
+import com.ecommerce.dto.AuthenticatedUser;
+import com.ecommerce.dto.BulkCartRequest;
 import com.ecommerce.entity.Cart;
-import com.ecommerce.entity.User;
-import com.ecommerce.repository.UserRepository;
 import com.ecommerce.service.RedisCartService;
-import com.ecommerce.service.JwtService;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,20 +20,10 @@ public class CartController {
     @Autowired
     private RedisCartService cartService;
     
-    @Autowired
-    private JwtService jwtService;
-    
-    @Autowired
-    private UserRepository userRepository;
-    
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Cart>>> getCart(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse<List<Cart>>> getCart(@CurrentUser AuthenticatedUser user) {
         try {
-            String email = jwtService.extractEmail(token.substring(7));
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            List<Cart> cartItems = cartService.getUserCart(user);
+            List<Cart> cartItems = cartService.getUserCart(user.getUserId());
             return ResponseEntity.ok(ApiResponse.success("Cart retrieved successfully", cartItems));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -44,26 +35,35 @@ public class CartController {
             @PathVariable Long productId,
             @RequestParam(required = false, defaultValue = "1") Integer quantity,
             @RequestParam(required = false) String size,
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser AuthenticatedUser user) {
         try {
-            String email = jwtService.extractEmail(token.substring(7));
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            Cart cartItem = cartService.addToCart(user, productId, quantity, size);
+            Cart cartItem = cartService.addToCart(user.getUserId(), productId, quantity, size);
             return ResponseEntity.ok(ApiResponse.success("Product added to cart", cartItem));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
+    @PostMapping("/bulk")
+    public ResponseEntity<ApiResponse<List<Cart>>> addAllToCart(
+            @Valid @RequestBody BulkCartRequest request,
+            @CurrentUser AuthenticatedUser user) {
+        try {
+            List<Cart> cartItems = cartService.addAllToCart(user.getUserId(), request.getItems());
+            return ResponseEntity.ok(ApiResponse.success("Products added to cart", cartItems));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @PutMapping("/{cartId}")
     public ResponseEntity<ApiResponse<Cart>> updateCart(
             @PathVariable Long cartId,
             @RequestParam(required = false) Integer quantity,
-            @RequestParam(required = false) String size) {
+            @RequestParam(required = false) String size,
+            @CurrentUser AuthenticatedUser user) {
         try {
-            Cart cartItem = cartService.updateCart(cartId, quantity, size);
+            Cart cartItem = cartService.updateCart(user.getUserId(), cartId, quantity, size);
             return ResponseEntity.ok(ApiResponse.success("Cart updated successfully", cartItem));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -71,9 +71,11 @@ public class CartController {
     }
     
     @DeleteMapping("/{cartId}")
-    public ResponseEntity<ApiResponse<String>> removeFromCart(@PathVariable Long cartId) {
+    public ResponseEntity<ApiResponse<String>> removeFromCart(
+            @PathVariable Long cartId,
+            @CurrentUser AuthenticatedUser user) {
         try {
-            cartService.removeFromCart(cartId);
+            cartService.removeFromCart(user.getUserId(), cartId);
             return ResponseEntity.ok(ApiResponse.success("Item removed from cart"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -1,15 +1,25 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.config.CurrentUser;
 import com.ecommerce.dto.ApiResponse;
+import com.ecommerce.dto.AuthenticatedUser;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.OrderIntakeStatus;
+import com.ecommerce.dto.OrderSummary;
+import com.ecommerce.dto.VendorOrderSummary;
 import com.ecommerce.entity.Order;
-import com.ecommerce.entity.User;
-import com.ecommerce.repository.UserRepository;
-import com.ecommerce.service.JwtService;
+import com.ecommerce.service.OrderIntakeService;
 import com.ecommerce.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -20,35 +30,53 @@ public class OrderController {
     private OrderService orderService;
     
     @Autowired
-    private JwtService jwtService;
-    
-    @Autowired
-    private UserRepository userRepository;
+    private OrderIntakeService orderIntakeService;
     
     @PostMapping("/place")
     public ResponseEntity<ApiResponse<List<Order>>> placeOrder(
             @RequestBody com.ecommerce.dto.CheckoutRequest request,
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser AuthenticatedUser user) {
         try {
-            String email = jwtService.extractEmail(token.substring(7));
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            List<Order> orders = orderService.placeOrder(user, request.getPhone(), request.getAddress());
+            List<Order> orders = orderService.placeOrder(user.getUserId(), request.getPhone(), request.getAddress());
             return ResponseEntity.ok(ApiResponse.success("Order placed successfully", orders));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
+    // Reserves stock and answers 202 with a reference; the orders are saved shortly after
+    @PostMapping("/intake")
+    public ResponseEntity<ApiResponse<OrderIntakeStatus>> submitOrder(
+            @RequestBody com.ecommerce.dto.CheckoutRequest request,
+            @CurrentUser AuthenticatedUser user) {
+        try {
+            OrderIntakeStatus status = orderIntakeService.submit(user.getUserId());
+            return ResponseEntity.accepted().body(ApiResponse.success("Order accepted", status));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/intake/{reference}")
+    public ResponseEntity<ApiResponse<OrderIntakeStatus>> getIntakeStatus(
+            @PathVariable String reference,
+            @CurrentUser AuthenticatedUser user) {
+        try {
+            OrderIntakeStatus status = orderIntakeService.getStatus(user.getUserId(), reference);
+            return ResponseEntity.ok(ApiResponse.success("Order status retrieved", status));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Order>>> getUserOrders(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse<List<Order>>> getUserOrders(@CurrentUser AuthenticatedUser user) {
         try {
-            String email = jwtService.extractEmail(token.substring(7));
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            List<Order> orders = orderService.getUserOrders(user);
+            List<Order> orders = orderService.getUserOrders(user.getUserId());
             return ResponseEntity.ok(ApiResponse.success("Orders retrieved successfully", orders));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -56,19 +84,9 @@ public class OrderController {
     }
     
     @GetMapping("/vendor")
-    public ResponseEntity<ApiResponse<List<Order>>> getVendorOrders(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse<List<Order>>> getVendorOrders(@CurrentUser AuthenticatedUser user) {
         try {
-            System.out.println("Getting vendor orders - Token: " + token);
-            String email = jwtService.extractEmail(token.substring(7));
-            System.out.println("Extracted email: " + email);
-            
-            User vendor = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            System.out.println("Vendor found: " + vendor.getUsername() + ", ID: " + vendor.getUserid());
-            List<Order> orders = orderService.getVendorOrders(vendor);
-            System.out.println("Found " + orders.size() + " orders for vendor: " + vendor.getUsername());
-            
+            List<Order> orders = orderService.getVendorOrders(user.getUserId());
             return ResponseEntity.ok(ApiResponse.success("Vendor orders retrieved successfully", orders));
         } catch (Exception e) {
             System.err.println("Error fetching vendor orders: " + e.getMessage());
@@ -77,6 +95,52 @@ public class OrderController {
         }
     }
     
+    // Paged order history, newest first; from and to are inclusive dates
+    @GetMapping("/history")
+    public ResponseEntity<ApiResponse<CursorPage<OrderSummary>>> getUserOrderHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @CurrentUser AuthenticatedUser user) {
+        try {
+            int pageSize = Math.max(1, Math.min(size, 100));
+            CursorPage<OrderSummary> orders = orderService.getUserOrderHistory(user.getUserId(), cursor, pageSize,
+                    status, startOf(from), endOf(to));
+            return ResponseEntity.ok(ApiResponse.success("Orders retrieved successfully", orders));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/vendor/history")
+    public ResponseEntity<ApiResponse<CursorPage<VendorOrderSummary>>> getVendorOrderHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @CurrentUser AuthenticatedUser user) {
+        try {
+            int pageSize = Math.max(1, Math.min(size, 100));
+            CursorPage<VendorOrderSummary> orders = orderService.getVendorOrderHistory(user.getUserId(), cursor, pageSize,
+                    status, startOf(from), endOf(to));
+            return ResponseEntity.ok(ApiResponse.success("Vendor orders retrieved successfully", orders));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    private static LocalDateTime startOf(LocalDate from) {
+        return from != null ? from.atStartOfDay() : null;
+    }
+    
+    // The service bound is exclusive, so an inclusive "to" date ends at the next midnight
+    private static LocalDateTime endOf(LocalDate to) {
+        return to != null ? to.plusDays(1).atStartOfDay() : null;
+    }
+    
     @PutMapping("/{orderId}/status")
     public ResponseEntity<ApiResponse<Order>> updateOrderStatus(
             @PathVariable Long orderId,
@@ -1,16 +1,24 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.config.CurrentUser;
 import com.ecommerce.dto.ApiResponse;
+import com.ecommerce.dto.AuthenticatedUser;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.FacetQuery;
+import com.ecommerce.dto.FacetResult;
 import com.ecommerce.entity.Product;
-import com.ecommerce.entity.User;
-import com.ecommerce.repository.UserRepository;
-import com.ecommerce.service.JwtService;
+import com.ecommerce.service.CacheWarmupService;
+import com.ecommerce.service.CatalogSnapshotService;
+import com.ecommerce.service.FlashSaleInventoryService;
 import com.ecommerce.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -27,19 +35,45 @@ public class ProductController {
     private ProductService productService;
     
     @Autowired
-    private JwtService jwtService;
+    private CatalogSnapshotService catalogSnapshotService;
     
     @Autowired
-    private UserRepository userRepository;
+    private CacheWarmupService cacheWarmupService;
+    
+    @Autowired
+    private FlashSaleInventoryService flashSaleInventoryService;
     
     @GetMapping
-    public ResponseEntity<ApiResponse<?>> getAllProducts(
+    public ResponseEntity<?> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "pid") String sortBy) {
+            @RequestParam(defaultValue = "pid") String sortBy,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            // Hot pages are served from pre-serialized bytes
+            if (catalogSnapshotService.isSnapshotted(page, size, sortBy)) {
+                CatalogSnapshotService.Snapshot snapshot = catalogSnapshotService.getSnapshot(page, size, sortBy);
+                cacheWarmupService.recordPageAccess(page, size, sortBy);
+                boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+                String etag = snapshot.getEtag(gzip);
+                if (etag.equals(ifNoneMatch)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+                }
+                ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .eTag(etag)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                if (gzip) {
+                    return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzipped());
+                }
+                return response.body(snapshot.getJson());
+            }
+            
             Pageable pageable = PageRequest.of(page, size, Sort.by(sortBy));
             Page<Product> productPage = productService.getAllProducts(pageable);
+            cacheWarmupService.recordPageAccess(page, size, sortBy);
             return ResponseEntity.ok(ApiResponse.success("Products retrieved successfully", productPage));
         } catch (Exception e) {
             System.err.println("Error fetching products: " + e.getMessage());
@@ -48,10 +82,65 @@ public class ProductController {
         }
     }
     
+    @GetMapping("/browse")
+    public ResponseEntity<ApiResponse<CursorPage<Product>>> browseProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "pid") String sortBy,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            int pageSize = Math.max(1, Math.min(size, 100));
+            CursorPage<Product> productPage = productService.browseProducts(cursor, pageSize, sortBy);
+            if (includeTotal) {
+                productPage.setTotalElements(productService.getProductCount());
+            }
+            return ResponseEntity.ok(ApiResponse.success("Products retrieved successfully", productPage));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<List<Product>>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<Product> products = productService.searchProducts(query, Math.max(1, Math.min(limit, 100)));
+            return ResponseEntity.ok(ApiResponse.success("Search completed", products));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/filter")
+    public ResponseEntity<ApiResponse<FacetResult<Product>>> filterProducts(
+            @RequestParam(required = false) List<String> priceBand,
+            @RequestParam(required = false) List<String> size,
+            @RequestParam(required = false) List<Long> vendor,
+            @RequestParam(required = false) Integer minRating,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            FacetQuery query = new FacetQuery();
+            query.setPriceBands(priceBand);
+            query.setSizes(size);
+            query.setVendors(vendor);
+            query.setMinRating(minRating);
+            query.setInStock(inStock);
+            FacetResult<Product> result = productService.filterProducts(query, Math.max(0, page),
+                    Math.max(1, Math.min(limit, 100)));
+            return ResponseEntity.ok(ApiResponse.success("Products filtered successfully", result));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<Product>> getProduct(@PathVariable Long id) {
         try {
             Product product = productService.getProductById(id);
+            cacheWarmupService.recordProductAccess(id);
             return ResponseEntity.ok(ApiResponse.success("Product retrieved successfully", product));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -67,15 +156,10 @@ public class ProductController {
             @RequestParam MultipartFile image,
             @RequestParam(defaultValue = "0") Integer stock,
             @RequestParam(required = false) String sizes,
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser AuthenticatedUser user) {
         try {
             System.out.println("Creating product: " + name + ", Price: " + price + ", Stock: " + stock);
-            String email = jwtService.extractEmail(token.substring(7));
-            User vendor = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            System.out.println("Vendor found: " + vendor.getUsername());
-            Product product = productService.createProduct(name, price, detail, image, vendor, stock, sizes);
+            Product product = productService.createProduct(name, price, detail, image, user.getUserId(), stock, sizes);
             System.out.println("Product created with ID: " + product.getPid());
             return ResponseEntity.ok(ApiResponse.success("Product created successfully", product));
         } catch (Exception e) {
@@ -103,20 +187,38 @@ public class ProductController {
         }
     }
     
+    @PutMapping("/{id}/flash-sale")
+    @PreAuthorize("hasRole('VENDOR')")
+    public ResponseEntity<ApiResponse<Product>> setFlashSale(
+            @PathVariable Long id,
+            @RequestParam boolean enabled,
+            @RequestParam(required = false) Integer shards,
+            @CurrentUser AuthenticatedUser user) {
+        try {
+            Product owned = productService.getProductById(id);
+            if (owned.getVendor() == null || !owned.getVendor().getUserid().equals(user.getUserId())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(ApiResponse.error("You can only run flash sales on your own products"));
+            }
+            if (enabled) {
+                flashSaleInventoryService.enable(id, shards);
+            } else {
+                flashSaleInventoryService.disable(id);
+            }
+            Product product = productService.getProductById(id);
+            return ResponseEntity.ok(ApiResponse.success(enabled ? "Flash sale started" : "Flash sale ended", product));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/vendor")
     public ResponseEntity<ApiResponse<List<Product>>> getVendorProducts(
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser AuthenticatedUser user) {
         try {
-            System.out.println("Getting vendor products - Token: " + token);
-            String email = jwtService.extractEmail(token.substring(7));
-            System.out.println("Extracted email: " + email);
-            
-            User vendor = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            System.out.println("Vendor found: " + vendor.getUsername() + ", ID: " + vendor.getUserid());
-            List<Product> products = productService.getProductsByVendor(vendor);
-            System.out.println("Found " + products.size() + " products for vendor: " + vendor.getUsername());
+            System.out.println("Getting vendor products for: " + user.getEmail() + ", ID: " + user.getUserId());
+            List<Product> products = productService.getProductsByVendor(user.getUserId());
+            System.out.println("Found " + products.size() + " products for vendor: " + user.getEmail());
             
             return ResponseEntity.ok(ApiResponse.success("Vendor products retrieved successfully", products));
         } catch (Exception e) {
@@ -1,10 +1,9 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.config.CurrentUser;
 import com.ecommerce.dto.ApiResponse;
+import com.ecommerce.dto.AuthenticatedUser;
 import com.ecommerce.entity.Review;
-import com.ecommerce.entity.User;
-import com.ecommerce.repository.UserRepository;
-import com.ecommerce.service.JwtService;
 import com.ecommerce.service.ReviewService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -20,12 +19,6 @@ public class ReviewController {
     @Autowired
     private ReviewService reviewService;
     
-    @Autowired
-    private JwtService jwtService;
-    
-    @Autowired
-    private UserRepository userRepository;
-    
     @GetMapping("/product/{productId}")
     public ResponseEntity<ApiResponse<List<Review>>> getProductReviews(@PathVariable Long productId) {
         try {
@@ -42,13 +35,9 @@ public class ReviewController {
             @PathVariable Long productId,
             @RequestParam Integer rating,
             @RequestParam(required = false) String comment,
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser AuthenticatedUser user) {
         try {
-            String email = jwtService.extractEmail(token.substring(7));
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            Review review = reviewService.addReview(user, productId, rating, comment);
+            Review review = reviewService.addReview(user.getUserId(), productId, rating, comment);
             return ResponseEntity.ok(ApiResponse.success("Review added successfully", review));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -59,13 +48,9 @@ public class ReviewController {
     @PreAuthorize("hasRole('CUSTOMER')")
     public ResponseEntity<ApiResponse<Boolean>> canUserReview(
             @PathVariable Long productId,
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser AuthenticatedUser user) {
         try {
-            String email = jwtService.extractEmail(token.substring(7));
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            boolean canReview = reviewService.canUserReview(user.getUserid(), productId);
+            boolean canReview = reviewService.canUserReview(user.getUserId(), productId);
             return ResponseEntity.ok(ApiResponse.success("Check completed", canReview));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
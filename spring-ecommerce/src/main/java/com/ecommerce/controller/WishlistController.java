@@ -1,10 +1,9 @@
 package com.ecommerce.controller;
 
+import com.ecommerce.config.CurrentUser;
 import com.ecommerce.dto.ApiResponse;
-import com.ecommerce.entity.User;
+import com.ecommerce.dto.AuthenticatedUser;
 import com.ecommerce.entity.Wishlist;
-import com.ecommerce.repository.UserRepository;
-import com.ecommerce.service.JwtService;
 import com.ecommerce.service.RedisWishlistService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -19,20 +18,10 @@ public class WishlistController {
     @Autowired
     private RedisWishlistService wishlistService;
     
-    @Autowired
-    private JwtService jwtService;
-    
-    @Autowired
-    private UserRepository userRepository;
-    
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Wishlist>>> getWishlist(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse<List<Wishlist>>> getWishlist(@CurrentUser AuthenticatedUser user) {
         try {
-            String email = jwtService.extractEmail(token.substring(7));
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            List<Wishlist> wishlist = wishlistService.getUserWishlist(user);
+            List<Wishlist> wishlist = wishlistService.getUserWishlist(user.getUserId());
             return ResponseEntity.ok(ApiResponse.success("Wishlist retrieved successfully", wishlist));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -42,13 +31,9 @@ public class WishlistController {
     @PostMapping("/add/{productId}")
     public ResponseEntity<ApiResponse<Wishlist>> addToWishlist(
             @PathVariable Long productId,
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser AuthenticatedUser user) {
         try {
-            String email = jwtService.extractEmail(token.substring(7));
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            Wishlist wishlist = wishlistService.addToWishlist(user, productId);
+            Wishlist wishlist = wishlistService.addToWishlist(user.getUserId(), productId);
             return ResponseEntity.ok(ApiResponse.success("Added to wishlist", wishlist));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -58,13 +43,9 @@ public class WishlistController {
     @DeleteMapping("/remove/{productId}")
     public ResponseEntity<ApiResponse<String>> removeFromWishlist(
             @PathVariable Long productId,
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser AuthenticatedUser user) {
         try {
-            String email = jwtService.extractEmail(token.substring(7));
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            wishlistService.removeFromWishlist(user, productId);
+            wishlistService.removeFromWishlist(user.getUserId(), productId);
             return ResponseEntity.ok(ApiResponse.success("Removed from wishlist"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -74,13 +55,9 @@ public class WishlistController {
     @GetMapping("/check/{productId}")
     public ResponseEntity<ApiResponse<Boolean>> checkWishlist(
             @PathVariable Long productId,
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser AuthenticatedUser user) {
         try {
-            String email = jwtService.extractEmail(token.substring(7));
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            boolean isInWishlist = wishlistService.isInWishlist(user, productId);
+            boolean isInWishlist = wishlistService.isInWishlist(user.getUserId(), productId);
             return ResponseEntity.ok(ApiResponse.success("Wishlist status", isInWishlist));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -0,0 +1,35 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.entity.User;
+import io.jsonwebtoken.Claims;
+
+import java.security.Principal;
+
+// Request principal built from verified JWT claims, so handlers don't need a user lookup
+public class AuthenticatedUser implements Principal {
+    private final Long userId;
+    private final String email;
+    private final User.UserType userType;
+    
+    public AuthenticatedUser(Long userId, String email, User.UserType userType) {
+        this.userId = userId;
+        this.email = email;
+        this.userType = userType;
+    }
+    
+    public static AuthenticatedUser fromClaims(Claims claims) {
+        Number userId = claims.get("userId", Number.class);
+        String userType = claims.get("userType", String.class);
+        return new AuthenticatedUser(
+                userId != null ? userId.longValue() : null,
+                claims.getSubject(),
+                userType != null ? User.UserType.valueOf(userType) : null);
+    }
+    
+    public Long getUserId() { return userId; }
+    public String getEmail() { return email; }
+    public User.UserType getUserType() { return userType; }
+    
+    @Override
+    public String getName() { return email; }
+}
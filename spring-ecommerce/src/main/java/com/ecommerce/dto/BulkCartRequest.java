@@ -0,0 +1,47 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.entity.Cart;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BulkCartRequest {
+    @NotEmpty
+    @Valid
+    private List<Item> items;
+
+    public BulkCartRequest() {}
+
+    public List<Item> getItems() { return items; }
+    public void setItems(List<Item> items) { this.items = items; }
+
+    public static class Item {
+        @NotNull
+        private Long productId;
+
+        private Integer quantity;
+
+        @Size(max = Cart.MAX_SIZE_LENGTH)
+        private String size;
+
+        public Item() {}
+
+        public Item(Long productId, Integer quantity, String size) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.size = size;
+        }
+
+        public Long getProductId() { return productId; }
+        public void setProductId(Long productId) { this.productId = productId; }
+
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+        public String getSize() { return size; }
+        public void setSize(String size) { this.size = size; }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.entity.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+// PageImpl can't be read back from Redis JSON, so list caches hold this instead
+public class CachedProductPage {
+    private List<Product> content;
+    private long totalElements;
+    
+    public CachedProductPage() {}
+    
+    public CachedProductPage(List<Product> content, long totalElements) {
+        this.content = content;
+        this.totalElements = totalElements;
+    }
+    
+    public Page<Product> toPage(Pageable pageable) {
+        return new PageImpl<>(content, pageable, totalElements);
+    }
+    
+    public List<Product> getContent() { return content; }
+    public void setContent(List<Product> content) { this.content = content; }
+    
+    public long getTotalElements() { return totalElements; }
+    public void setTotalElements(long totalElements) { this.totalElements = totalElements; }
+}
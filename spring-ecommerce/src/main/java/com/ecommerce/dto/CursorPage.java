@@ -0,0 +1,36 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+    private Long totalElements;
+    
+    public CursorPage() {}
+    
+    public CursorPage(List<T> content, String nextCursor, boolean hasNext, int size, Long totalElements) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+        this.size = size;
+        this.totalElements = totalElements;
+    }
+    
+    public List<T> getContent() { return content; }
+    public void setContent(List<T> content) { this.content = content; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+    
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+    
+    public Long getTotalElements() { return totalElements; }
+    public void setTotalElements(Long totalElements) { this.totalElements = totalElements; }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+
+public class FacetQuery {
+    private List<String> priceBands;
+    private List<String> sizes;
+    private List<Long> vendors;
+    private Integer minRating;
+    private Boolean inStock;
+    
+    public FacetQuery() {}
+    
+    public List<String> getPriceBands() { return priceBands; }
+    public void setPriceBands(List<String> priceBands) { this.priceBands = priceBands; }
+    
+    public List<String> getSizes() { return sizes; }
+    public void setSizes(List<String> sizes) { this.sizes = sizes; }
+    
+    public List<Long> getVendors() { return vendors; }
+    public void setVendors(List<Long> vendors) { this.vendors = vendors; }
+    
+    public Integer getMinRating() { return minRating; }
+    public void setMinRating(Integer minRating) { this.minRating = minRating; }
+    
+    public Boolean getInStock() { return inStock; }
+    public void setInStock(Boolean inStock) { this.inStock = inStock; }
+}
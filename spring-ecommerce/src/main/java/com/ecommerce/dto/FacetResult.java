@@ -0,0 +1,27 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class FacetResult<T> {
+    private List<T> content;
+    private int totalElements;
+    private Map<String, Map<String, Integer>> facets;
+    
+    public FacetResult() {}
+    
+    public FacetResult(List<T> content, int totalElements, Map<String, Map<String, Integer>> facets) {
+        this.content = content;
+        this.totalElements = totalElements;
+        this.facets = facets;
+    }
+    
+    public List<T> getContent() { return content; }
+    public void setContent(List<T> content) { this.content = content; }
+    
+    public int getTotalElements() { return totalElements; }
+    public void setTotalElements(int totalElements) { this.totalElements = totalElements; }
+    
+    public Map<String, Map<String, Integer>> getFacets() { return facets; }
+    public void setFacets(Map<String, Map<String, Integer>> facets) { this.facets = facets; }
+}
@@ -0,0 +1,36 @@
+package com.ecommerce.dto;
+
+import java.util.List;
+
+public class OrderIntakeStatus {
+
+    public enum State {
+        QUEUED, COMMITTED, FAILED
+    }
+
+    private String reference;
+    private State state;
+    private List<Long> orderIds;
+    private String error;
+
+    public OrderIntakeStatus() {}
+
+    public OrderIntakeStatus(String reference, State state, List<Long> orderIds, String error) {
+        this.reference = reference;
+        this.state = state;
+        this.orderIds = orderIds;
+        this.error = error;
+    }
+
+    public String getReference() { return reference; }
+    public void setReference(String reference) { this.reference = reference; }
+
+    public State getState() { return state; }
+    public void setState(State state) { this.state = state; }
+
+    public List<Long> getOrderIds() { return orderIds; }
+    public void setOrderIds(List<Long> orderIds) { this.orderIds = orderIds; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,19 @@
+package com.ecommerce.dto;
+
+import com.ecommerce.entity.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One order-history row: the order columns plus the product fields the dashboards show
+public interface OrderSummary {
+    Long getId();
+    LocalDateTime getOrderDate();
+    Order.OrderStatus getStatus();
+    BigDecimal getPrice();
+    Integer getQuantity();
+    String getSize();
+    Long getProductId();
+    String getProductName();
+    String getProductImage();
+}
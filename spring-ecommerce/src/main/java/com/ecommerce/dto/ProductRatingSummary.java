@@ -0,0 +1,7 @@
+package com.ecommerce.dto;
+
+public interface ProductRatingSummary {
+    Long getPid();
+    Double getAverageRating();
+    Long getReviewCount();
+}
@@ -0,0 +1,8 @@
+package com.ecommerce.dto;
+
+// Vendors also need to know who placed the order
+public interface VendorOrderSummary extends OrderSummary {
+    Long getCustomerId();
+    String getCustomerName();
+    String getCustomerEmail();
+}
@@ -2,12 +2,18 @@ package com.ecommerce.entity;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "cart")
 public class Cart {
+    // Width of cart.size in MySQL
+    public static final int MAX_SIZE_LENGTH = 10;
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "cart_ids")
+    @TableGenerator(name = "cart_ids", table = "id_generators", pkColumnName = "entity",
+            valueColumnName = "next_val", pkColumnValue = "cart", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.EAGER)
@@ -22,8 +28,17 @@ public class Cart {
     
     private Integer quantity = 1;
     
+    @Column(length = MAX_SIZE_LENGTH)
     private String size;
     
+    @Column(name = "added_at")
+    private LocalDateTime addedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        if (addedAt == null) addedAt = LocalDateTime.now();
+    }
+    
     // Constructors
     public Cart() {}
     
@@ -51,4 +66,7 @@ public class Cart {
     
     public String getSize() { return size; }
     public void setSize(String size) { this.size = size; }
+    
+    public LocalDateTime getAddedAt() { return addedAt; }
+    public void setAddedAt(LocalDateTime addedAt) { this.addedAt = addedAt; }
 }
\ No newline at end of file
@@ -5,10 +5,21 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_reservation_expiry", columnList = "reservation, reserved_until"),
+    @Index(name = "idx_orders_intake_ref", columnList = "intake_ref"),
+    // Order history walks these newest first; the status variants serve the status filter
+    @Index(name = "idx_orders_user_date", columnList = "userid, order_date, id"),
+    @Index(name = "idx_orders_user_status_date", columnList = "userid, status, order_date, id"),
+    @Index(name = "idx_orders_vendor_date", columnList = "vendor_id, order_date, id"),
+    @Index(name = "idx_orders_vendor_status_date", columnList = "vendor_id, status, order_date, id")
+})
 public class Order {
+    // Pooled ids (blocks of 50 from id_generators) let Hibernate batch inserts; IDENTITY can't
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_ids")
+    @TableGenerator(name = "order_ids", table = "id_generators", pkColumnName = "entity",
+            valueColumnName = "next_val", pkColumnValue = "orders", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.EAGER)
@@ -31,10 +42,32 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status = OrderStatus.PENDING;
     
+    // Stock held for this line since checkout; null on orders placed before reservations existed.
+    // Written on insert, then only through the conditional updates in OrderRepository.
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false)
+    private ReservationStatus reservation;
+    
+    @Column(name = "reserved_until", updatable = false)
+    private LocalDateTime reservedUntil;
+    
+    // Reference handed out by the async intake endpoint; shared by every line of that checkout
+    @Column(name = "intake_ref", length = 36, updatable = false)
+    private String intakeRef;
+    
+    // Copy of product.vendor_id so vendor order history is one index range instead of a join
+    // over every order of every product the vendor sells
+    @Column(name = "vendor_id", updatable = false)
+    private Long vendorId;
+    
     public enum OrderStatus {
         PENDING, DELIVERED, CANCELLED
     }
     
+    public enum ReservationStatus {
+        HELD, CONSUMED, RELEASED
+    }
+    
     // Constructors
     public Order() {}
     
@@ -44,6 +77,7 @@ public class Order {
         this.price = price;
         this.quantity = quantity;
         this.size = size;
+        this.vendorId = product.getVendor() != null ? product.getVendor().getUserid() : null;
     }
     
     // Getters and Setters
@@ -70,4 +104,16 @@ public class Order {
     
     public String getSize() { return size; }
     public void setSize(String size) { this.size = size; }
+    
+    public ReservationStatus getReservation() { return reservation; }
+    public void setReservation(ReservationStatus reservation) { this.reservation = reservation; }
+    
+    public LocalDateTime getReservedUntil() { return reservedUntil; }
+    public void setReservedUntil(LocalDateTime reservedUntil) { this.reservedUntil = reservedUntil; }
+    
+    public String getIntakeRef() { return intakeRef; }
+    public void setIntakeRef(String intakeRef) { this.intakeRef = intakeRef; }
+    
+    public Long getVendorId() { return vendorId; }
+    public void setVendorId(Long vendorId) { this.vendorId = vendorId; }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.ecommerce.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Durable record of an accepted async checkout, written in the same transaction that reserves
+// its stock and deleted in the one that saves its orders. A row that outlives both is replayed.
+@Entity
+@Table(name = "order_intake", indexes = {
+    @Index(name = "idx_order_intake_created", columnList = "created_at")
+})
+public class OrderIntake {
+    @Id
+    @Column(length = 36)
+    private String reference;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    // One "pid|quantity|price|size" line per order
+    @Column(name = "order_lines", columnDefinition = "TEXT", nullable = false)
+    private String lines;
+    
+    @Column(name = "reserved_until")
+    private LocalDateTime reservedUntil;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public OrderIntake() {}
+    
+    // Getters and Setters
+    public String getReference() { return reference; }
+    public void setReference(String reference) { this.reference = reference; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public String getLines() { return lines; }
+    public void setLines(String lines) { this.lines = lines; }
+    
+    public LocalDateTime getReservedUntil() { return reservedUntil; }
+    public void setReservedUntil(LocalDateTime reservedUntil) { this.reservedUntil = reservedUntil; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
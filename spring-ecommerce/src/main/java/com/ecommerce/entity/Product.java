@@ -6,10 +6,16 @@ import jakarta.validation.constraints.Positive;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "product")
+@Table(name = "product", indexes = {
+    @Index(name = "idx_product_price_pid", columnList = "price, pid"),
+    @Index(name = "idx_product_name_pid", columnList = "name, pid")
+})
 public class Product {
+    // Kept small and dense by the pooled generator; the facet bitmaps index pids as ints
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "product_ids")
+    @TableGenerator(name = "product_ids", table = "id_generators", pkColumnName = "entity",
+            valueColumnName = "next_val", pkColumnValue = "product", allocationSize = 50)
     private Long pid;
     
     @NotBlank
@@ -35,6 +41,11 @@ public class Product {
     @Version
     private Long version;
     
+    // Redis sub-counters holding the stock while a flash sale is on (null otherwise);
+    // stock is then a mirror. Only FlashSaleInventoryService changes it.
+    @Column(name = "flash_shards", insertable = false, updatable = false)
+    private Integer flashShards;
+    
     @Transient
     private Double averageRating;
     
@@ -80,6 +91,9 @@ public class Product {
     public Long getVersion() { return version; }
     public void setVersion(Long version) { this.version = version; }
     
+    public Integer getFlashShards() { return flashShards; }
+    public void setFlashShards(Integer flashShards) { this.flashShards = flashShards; }
+    
     public Double getAverageRating() { return averageRating; }
     public void setAverageRating(Double averageRating) { this.averageRating = averageRating; }
     
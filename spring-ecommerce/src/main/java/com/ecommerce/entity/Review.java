@@ -9,7 +9,9 @@ import java.time.LocalDateTime;
 @Table(name = "review", uniqueConstraints = @UniqueConstraint(columnNames = {"userid", "pid"}))
 public class Review {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "review_ids")
+    @TableGenerator(name = "review_ids", table = "id_generators", pkColumnName = "entity",
+            valueColumnName = "next_val", pkColumnValue = "review", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.EAGER)
@@ -4,7 +4,10 @@ import com.ecommerce.entity.Cart;
 import com.ecommerce.entity.User;
 import com.ecommerce.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,4 +16,13 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     List<Cart> findByUser(User user);
     Optional<Cart> findByUserAndProduct(User user, Product product);
     void deleteByUser(User user);
+    List<Cart> findByUserUserid(Long userid);
+    void deleteByUserUserid(Long userid);
+    Optional<Cart> findFirstByUserUseridAndProductPidAndSize(Long userid, Long pid, String size);
+    
+    // Conditional increment: no row updated means the stock ceiling would be exceeded
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Cart c SET c.quantity = c.quantity + :delta WHERE c.id = :id AND c.quantity + :delta <= :ceiling")
+    int addQuantityWithinLimit(Long id, int delta, int ceiling);
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.ecommerce.repository;
+
+import com.ecommerce.entity.OrderIntake;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderIntakeRepository extends JpaRepository<OrderIntake, String> {
+    // Plain INSERT; save() would SELECT first because the id is assigned
+    @Modifying
+    @Query(value = "INSERT INTO order_intake (reference, user_id, order_lines, reserved_until, created_at) " +
+                   "VALUES (:reference, :userId, :lines, :reservedUntil, :createdAt)", nativeQuery = true)
+    void insert(String reference, Long userId, String lines, LocalDateTime reservedUntil, LocalDateTime createdAt);
+    
+    // Locks the rows still present, so the writer and the orphan replay can't both save a checkout
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM OrderIntake i WHERE i.reference IN :references")
+    List<OrderIntake> lockAll(Collection<String> references);
+    
+    @Query("SELECT i.reference FROM OrderIntake i WHERE i.createdAt < :before ORDER BY i.createdAt")
+    List<String> findOrphans(LocalDateTime before, Pageable pageable);
+    
+    boolean existsByReferenceAndUserId(String reference, Long userId);
+}
@@ -1,10 +1,15 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.OrderSummary;
+import com.ecommerce.dto.VendorOrderSummary;
 import com.ecommerce.entity.Order;
 import com.ecommerce.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -14,6 +19,50 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o WHERE o.product.vendor = :vendor")
     List<Order> findByVendor(User vendor);
     
+    List<Order> findByUserUserid(Long userid);
+    
+    @Query("SELECT o FROM Order o WHERE o.product.vendor.userid = :vendorId")
+    List<Order> findByVendorId(Long vendorId);
+    
     boolean existsByUserUseridAndProductPid(Long userid, Long pid);
     boolean existsByUserUseridAndProductPidAndStatus(Long userid, Long pid, Order.OrderStatus status);
+    
+    // Reservation flips are conditional so a vendor cancelling and the expiry sweeper can't both return stock
+    @Modifying
+    @Query("UPDATE Order o SET o.reservation = :to, o.reservedUntil = :until WHERE o.id = :id AND o.reservation = :from")
+    int transitionReservation(Long id, Order.ReservationStatus from, Order.ReservationStatus to, LocalDateTime until);
+    
+    // Matches orders that hold no stock: placed before reservations, or released
+    @Modifying
+    @Query("UPDATE Order o SET o.reservation = :to, o.reservedUntil = :until " +
+           "WHERE o.id = :id AND (o.reservation IS NULL OR o.reservation = :released)")
+    int reserveUnheld(Long id, Order.ReservationStatus to, LocalDateTime until, Order.ReservationStatus released);
+    
+    @Query("SELECT o.id FROM Order o WHERE o.reservation = :held AND o.reservedUntil < :now ORDER BY o.reservedUntil")
+    List<Long> findExpiredReservations(Order.ReservationStatus held, LocalDateTime now, Pageable pageable);
+    
+    @Query("SELECT o.id FROM Order o WHERE o.intakeRef = :reference AND o.user.userid = :userId ORDER BY o.id")
+    List<Long> findIdsByIntakeRef(String reference, Long userId);
+    
+    // Order history, newest first, one keyset page at a time. Callers pass the previous page's last
+    // (orderDate, id) as the upper bound, or the end of the date range with id 0 for the first page.
+    // Only the displayed columns are selected, so no User/Product entities are loaded.
+    @Query("SELECT o.id AS id, o.orderDate AS orderDate, o.status AS status, o.price AS price, " +
+           "o.quantity AS quantity, o.size AS size, p.pid AS productId, p.name AS productName, p.imgpath AS productImage " +
+           "FROM Order o JOIN o.product p " +
+           "WHERE o.user.userid = :userId AND (:status IS NULL OR o.status = :status) AND o.orderDate >= :from " +
+           "AND (o.orderDate < :beforeDate OR (o.orderDate = :beforeDate AND o.id < :beforeId)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> findUserHistory(Long userId, Order.OrderStatus status, LocalDateTime from,
+                                       LocalDateTime beforeDate, Long beforeId, Pageable pageable);
+    
+    @Query("SELECT o.id AS id, o.orderDate AS orderDate, o.status AS status, o.price AS price, " +
+           "o.quantity AS quantity, o.size AS size, p.pid AS productId, p.name AS productName, p.imgpath AS productImage, " +
+           "u.userid AS customerId, u.username AS customerName, u.email AS customerEmail " +
+           "FROM Order o JOIN o.product p JOIN o.user u " +
+           "WHERE o.vendorId = :vendorId AND (:status IS NULL OR o.status = :status) AND o.orderDate >= :from " +
+           "AND (o.orderDate < :beforeDate OR (o.orderDate = :beforeDate AND o.id < :beforeId)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<VendorOrderSummary> findVendorHistory(Long vendorId, Order.OrderStatus status, LocalDateTime from,
+                                               LocalDateTime beforeDate, Long beforeId, Pageable pageable);
 }
\ No newline at end of file
@@ -2,12 +2,35 @@ package com.ecommerce.repository;
 
 import com.ecommerce.entity.Product;
 import com.ecommerce.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByVendor(User vendor);
+    List<Product> findByVendorUserid(Long vendorId);
     List<Product> findByNameContainingIgnoreCase(String name);
-}
\ No newline at end of file
+    
+    // Keyset (seek) pagination - List return type skips the count query
+    @Query("SELECT p FROM Product p ORDER BY p.pid")
+    List<Product> findFirstByPid(Pageable pageable);
+    
+    @Query("SELECT p FROM Product p WHERE p.pid > :pid ORDER BY p.pid")
+    List<Product> findNextByPid(Long pid, Pageable pageable);
+    
+    @Query("SELECT p FROM Product p ORDER BY p.price, p.pid")
+    List<Product> findFirstByPrice(Pageable pageable);
+    
+    @Query("SELECT p FROM Product p WHERE p.price > :price OR (p.price = :price AND p.pid > :pid) ORDER BY p.price, p.pid")
+    List<Product> findNextByPrice(BigDecimal price, Long pid, Pageable pageable);
+    
+    @Query("SELECT p FROM Product p ORDER BY p.name, p.pid")
+    List<Product> findFirstByName(Pageable pageable);
+    
+    @Query("SELECT p FROM Product p WHERE p.name > :name OR (p.name = :name AND p.pid > :pid) ORDER BY p.name, p.pid")
+    List<Product> findNextByName(String name, Long pid, Pageable pageable);
+}
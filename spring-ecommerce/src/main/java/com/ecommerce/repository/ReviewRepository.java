@@ -1,9 +1,11 @@
 package com.ecommerce.repository;
 
+import com.ecommerce.dto.ProductRatingSummary;
 import com.ecommerce.entity.Review;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,4 +20,9 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     
     @Query("SELECT COUNT(r) FROM Review r WHERE r.product.pid = :pid")
     Long getReviewCountByProductId(Long pid);
+    
+    // One grouped query for a whole page of products instead of two per product
+    @Query("SELECT r.product.pid AS pid, AVG(r.rating) AS averageRating, COUNT(r) AS reviewCount " +
+           "FROM Review r WHERE r.product.pid IN :pids GROUP BY r.product.pid")
+    List<ProductRatingSummary> getRatingSummariesByProductIds(Collection<Long> pids);
 }
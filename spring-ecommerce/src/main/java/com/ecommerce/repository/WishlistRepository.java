@@ -12,4 +12,7 @@ public interface WishlistRepository extends JpaRepository<Wishlist, Long> {
     List<Wishlist> findByUser(User user);
     Optional<Wishlist> findByUserAndProductPid(User user, Long productId);
     void deleteByUserAndProductPid(User user, Long productId);
+    List<Wishlist> findByUserUserid(Long userid);
+    boolean existsByUserUseridAndProductPid(Long userid, Long productId);
+    void deleteByUserUseridAndProductPid(Long userid, Long productId);
 }
@@ -5,8 +5,8 @@ import com.ecommerce.dto.RegisterRequest;
 import com.ecommerce.dto.TokenResponse;
 import com.ecommerce.entity.User;
 import com.ecommerce.repository.UserRepository;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -16,11 +16,17 @@ public class AuthService {
     private UserRepository userRepository;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
     
     @Autowired
     private JwtService jwtService;
     
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private UserLookupService userLookupService;
+    
     public String register(RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new RuntimeException("Email already exists");
@@ -29,7 +35,7 @@ public class AuthService {
         User user = new User();
         user.setUsername(request.getUsername());
         user.setEmail(request.getEmail());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashingService.encode(request.getPassword()));
         user.setUsertype(request.getUsertype());
         
         userRepository.save(user);
@@ -40,26 +46,27 @@ public class AuthService {
         User user = userRepository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (!passwordHashingService.matches(request.getPassword(), user.getPassword())) {
             throw new RuntimeException("Invalid credentials");
         }
         
         String accessToken = jwtService.generateAccessToken(user);
-        String refreshToken = jwtService.generateRefreshToken(user);
+        String refreshToken = refreshTokenService.issue(user);
         
         return new TokenResponse(accessToken, refreshToken);
     }
     
     public TokenResponse refreshToken(String refreshToken) {
-        if (!jwtService.isTokenValid(refreshToken)) {
-            throw new RuntimeException("Invalid refresh token");
-        }
-        
-        String email = jwtService.extractEmail(refreshToken);
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        Claims claims = refreshTokenService.verify(refreshToken);
+        User user = userLookupService.getUser(claims.get("userId", Number.class).longValue());
         
+        // Every refresh rotates: the presented token is spent and a new one replaces it
+        String newRefreshToken = refreshTokenService.rotate(claims, user);
         String newAccessToken = jwtService.generateAccessToken(user);
-        return new TokenResponse(newAccessToken, refreshToken);
+        return new TokenResponse(newAccessToken, newRefreshToken);
+    }
+    
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
     }
 }
\ No newline at end of file
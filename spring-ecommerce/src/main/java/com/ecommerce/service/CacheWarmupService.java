@@ -0,0 +1,165 @@
+package com.ecommerce.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class CacheWarmupService {
+    
+    private static final String PRODUCT_HITS_KEY = "warmup:products";
+    private static final String PAGE_HITS_KEY = "warmup:pages";
+    // Ranking keeps this many members so the sorted sets stay small
+    private static final int MAX_TRACKED = 1000;
+    // Deeper pages are never worth warming
+    private static final int MAX_TRACKED_PAGE = 100;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Value("${cache.warmup.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${cache.warmup.products:200}")
+    private int productCount;
+    
+    @Value("${cache.warmup.pages:20}")
+    private int pageCount;
+    
+    // Kept well below the Hikari pool size so warm-up can't starve request threads
+    @Value("${cache.warmup.concurrency:4}")
+    private int concurrency;
+    
+    @Value("${cache.warmup.timeout-seconds:60}")
+    private long timeoutSeconds;
+    
+    // Counted in memory and flushed periodically so requests never wait on Redis for this
+    private final Map<String, LongAdder> productHits = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> pageHits = new ConcurrentHashMap<>();
+    
+    // Callers record only after the product loaded, so ids that don't exist never become keys
+    public void recordProductAccess(Long productId) {
+        productHits.computeIfAbsent(String.valueOf(productId), k -> new LongAdder()).increment();
+    }
+    
+    // Only page shapes warm-up can replay are counted; anything else a client sends is ignored
+    public void recordPageAccess(int page, int size, String sortBy) {
+        if (page < 0 || page >= MAX_TRACKED_PAGE || !catalogSnapshotService.isCacheable(size, sortBy)) return;
+        pageHits.computeIfAbsent(page + ":" + size + ":" + sortBy, k -> new LongAdder()).increment();
+    }
+    
+    @Scheduled(fixedDelayString = "${cache.warmup.flush-interval-ms:30000}")
+    public void flushAccessCounts() {
+        try {
+            flush(PRODUCT_HITS_KEY, productHits);
+            flush(PAGE_HITS_KEY, pageHits);
+        } catch (Exception e) {
+            System.err.println("Access count flush failed: " + e.getMessage());
+        }
+    }
+    
+    // Runs before Spring Boot marks the instance ready to accept traffic
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) return;
+        long start = System.currentTimeMillis();
+        
+        Set<String> hotProducts;
+        Set<String> hotPages;
+        try {
+            hotProducts = stringRedisTemplate.opsForZSet().reverseRange(PRODUCT_HITS_KEY, 0, productCount - 1);
+            hotPages = stringRedisTemplate.opsForZSet().reverseRange(PAGE_HITS_KEY, 0, pageCount - 1);
+        } catch (Exception e) {
+            System.err.println("Cache warm-up skipped: " + e.getMessage());
+            return;
+        }
+        
+        List<Runnable> tasks = new ArrayList<>();
+        if (hotPages != null) {
+            for (String page : hotPages) {
+                tasks.add(() -> warmPage(page));
+            }
+        }
+        if (hotProducts != null) {
+            for (String productId : hotProducts) {
+                tasks.add(() -> productService.getProductById(Long.valueOf(productId)));
+            }
+        }
+        if (tasks.isEmpty()) return;
+        
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        for (Runnable task : tasks) {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    // Deleted products and bad entries are skipped
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Cache warm-up loaded " + tasks.size() + " entries in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+    
+    private void warmPage(String page) {
+        String[] parts = page.split(":");
+        int number = Integer.parseInt(parts[0]);
+        int size = Integer.parseInt(parts[1]);
+        String sortBy = parts[2];
+        if (catalogSnapshotService.isSnapshotted(number, size, sortBy)) {
+            catalogSnapshotService.getSnapshot(number, size, sortBy);
+        } else {
+            productService.getAllProducts(PageRequest.of(number, size, Sort.by(sortBy)));
+        }
+    }
+    
+    private void flush(String key, Map<String, LongAdder> hits) {
+        if (hits.isEmpty()) return;
+        Map<String, Long> counts = new ConcurrentHashMap<>();
+        for (String member : hits.keySet()) {
+            LongAdder adder = hits.remove(member);
+            if (adder != null) counts.put(member, adder.sum());
+        }
+        
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+            counts.forEach((member, count) ->
+                    connection.zSetCommands().zIncrBy(rawKey, count, member.getBytes(StandardCharsets.UTF_8)));
+            connection.zSetCommands().zRemRange(rawKey, 0, -(MAX_TRACKED + 1));
+            return null;
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Cart;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// Compact Redis form of a cart row. The hash field is "pid|size" so each (product, size)
+// has exactly one line; the value is "cartId|qty|price|addedAtMillis".
+public record CartLine(Long cartId, Long pid, int quantity, BigDecimal price, long addedAt, String size) {
+
+    public static CartLine of(Cart cart) {
+        LocalDateTime added = cart.getAddedAt() != null ? cart.getAddedAt() : LocalDateTime.now();
+        return new CartLine(cart.getId(), cart.getProduct().getPid(), cart.getQuantity(), cart.getPrice(),
+                added.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), cart.getSize());
+    }
+
+    public static String field(Long pid, String size) {
+        return pid + "|" + (size != null ? size : "");
+    }
+
+    public String field() {
+        return field(pid, size);
+    }
+
+    public String encode() {
+        return cartId + "|" + quantity + "|" + price.toPlainString() + "|" + addedAt;
+    }
+
+    public static CartLine decode(String field, String value) {
+        int bar = field.indexOf('|');
+        String size = field.substring(bar + 1);
+        String[] parts = value.split("\\|", 4);
+        return new CartLine(Long.parseLong(parts[0]), Long.parseLong(field.substring(0, bar)),
+                Integer.parseInt(parts[1]), new BigDecimal(parts[2]), Long.parseLong(parts[3]),
+                size.isEmpty() ? null : size);
+    }
+
+    public CartLine withQuantity(int newQuantity) {
+        return new CartLine(cartId, pid, newQuantity, price, addedAt, size);
+    }
+
+    public LocalDateTime addedAtTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(addedAt), ZoneId.systemDefault());
+    }
+}
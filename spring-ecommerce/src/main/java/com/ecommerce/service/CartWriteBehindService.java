@@ -0,0 +1,643 @@
+package com.ecommerce.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Write-behind mode for carts: Redis holds the live cart and every mutation marks the user
+// dirty in the same MULTI. A background flusher copies each dirty cart to MySQL as one
+// coalesced batch, so five quick "+1" clicks become a single upsert.
+@Service
+public class CartWriteBehindService {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Cart ids come in blocks from the same id_generators row the JPA generator uses
+    @Autowired
+    private IdGeneratorInitializer idGenerators;
+
+    @Value("${cart.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cart.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${cart.write-behind.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    @Value("${cart.write-behind.id-block-size:1000}")
+    private int idBlockSize;
+
+    public static final String CART_KEY_PREFIX = "cart:items:";
+    // Set when a cart is emptied; without it a missing hash means expired or lost, not empty
+    public static final String EMPTIED_KEY_PREFIX = "cart:emptied:";
+    public static final long CART_TTL_HOURS = 24;
+
+    // userId -> time of the first unflushed change (ZADD NX keeps the oldest)
+    private static final String DIRTY_KEY = "cart:dirty";
+    // userId -> claim time, while a flusher is writing it; requeued on failure or if abandoned
+    private static final String FLUSHING_KEY = "cart:flushing";
+    private static final long ABANDONED_CLAIM_MILLIS = 60_000;
+    // userId -> time parked, for carts MySQL refused (bad size, product or user gone). The Redis
+    // cart stays; the user's next change queues it for another attempt.
+    private static final String PARKED_KEY = "cart:parked";
+    // Last id handed out, and the last id of the block reserved for Redis in id_generators
+    private static final String SEQUENCE_KEY = "cart:id:seq";
+    private static final String SEQUENCE_LIMIT_KEY = "cart:id:limit";
+    private static final List<String> SEQUENCE_KEYS = List.of(SEQUENCE_KEY, SEQUENCE_LIMIT_KEY);
+
+    // KEYS: sequence, limit
+    private static final RedisScript<Long> NEXT_ID_SCRIPT = new DefaultRedisScript<>(
+            "local seq, limit = redis.call('GET', KEYS[1]), redis.call('GET', KEYS[2]) " +
+            "if not seq or not limit or tonumber(seq) >= tonumber(limit) then return -1 end " +
+            "return redis.call('INCR', KEYS[1])", Long.class);
+
+    // Switches the sequence to a newly reserved block, unless ids past its start were already
+    // handed out (another node installed a later block first)
+    // KEYS: sequence, limit  ARGV: id before the block, last id of the block
+    private static final RedisScript<Long> INSTALL_BLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if tonumber(redis.call('GET', KEYS[1]) or '0') > tonumber(ARGV[1]) then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[1]) " +
+            "redis.call('SET', KEYS[2], ARGV[2]) " +
+            "return 1", Long.class);
+
+    // Atomically snapshots a cart and moves its owner from dirty to flushing. A user another
+    // node is still flushing stays dirty, so an older snapshot can't land after a newer one.
+    // A cart whose hash is gone without the emptied marker (TTL, eviction, lost on restart) is
+    // dropped from the queue as GONE: MySQL keeps its rows and the next read reloads them.
+    // KEYS: cart, dirty, flushing, emptied  ARGV: userId, now
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local score = redis.call('ZSCORE', KEYS[2], ARGV[1]) " +
+            "if not score or redis.call('ZSCORE', KEYS[3], ARGV[1]) then return nil end " +
+            "redis.call('ZREM', KEYS[2], ARGV[1]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 and redis.call('EXISTS', KEYS[4]) == 0 then return {'GONE'} end " +
+            "redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1]) " +
+            "local lines = redis.call('HGETALL', KEYS[1]) " +
+            "table.insert(lines, 1, score) " +
+            "return lines", List.class);
+
+    // Adds to the line for (product, size), creating it if needed, capped at the stock ceiling.
+    // KEYS: cart, dirty, sequence, emptied, limit  ARGV: field, qty, price, now, ceiling, userId, ttlSeconds
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ADD_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], ARGV[1]) " +
+            "local qty = tonumber(ARGV[2]) " +
+            "local id, price, added = nil, ARGV[3], ARGV[4] " +
+            "if current then " +
+            "  local q " +
+            "  id, q, price, added = string.match(current, '^(%d+)|(%d+)|([^|]*)|(%d+)$') " +
+            "  qty = qty + tonumber(q) " +
+            "end " +
+            "if qty > tonumber(ARGV[5]) then return {'STOCK'} end " +
+            "if not id then " +
+            "  local seq, limit = redis.call('GET', KEYS[3]), redis.call('GET', KEYS[5]) " +
+            "  if not seq or not limit or tonumber(seq) >= tonumber(limit) then return {'NOSEQ'} end " +
+            "  id = redis.call('INCR', KEYS[3]) " +
+            "end " +
+            "local value = id .. '|' .. qty .. '|' .. price .. '|' .. added " +
+            "redis.call('HSET', KEYS[1], ARGV[1], value) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[7]) " +
+            "redis.call('DEL', KEYS[4]) " +
+            "redis.call('ZADD', KEYS[2], 'NX', ARGV[4], ARGV[6]) " +
+            "return {'OK', ARGV[1], value}", List.class);
+
+    // Bulk form of ADD_SCRIPT: every line is checked against its ceiling before anything is written,
+    // so the whole batch lands or none of it does. Ids for new lines come from one INCRBY.
+    // KEYS: cart, dirty, sequence, emptied, limit  ARGV: now, userId, ttlSeconds, then (field, qty, price, ceiling)...
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> BULK_ADD_SCRIPT = new DefaultRedisScript<>(
+            "local lines, missing = {}, 0 " +
+            "for b = 4, #ARGV, 4 do " +
+            "  local current = redis.call('HGET', KEYS[1], ARGV[b]) " +
+            "  local line = {field = ARGV[b], qty = tonumber(ARGV[b + 1]), price = ARGV[b + 2], added = ARGV[1]} " +
+            "  if current then " +
+            "    local q " +
+            "    line.id, q, line.price, line.added = string.match(current, '^(%d+)|(%d+)|([^|]*)|(%d+)$') " +
+            "    line.qty = line.qty + tonumber(q) " +
+            "  else " +
+            "    missing = missing + 1 " +
+            "  end " +
+            "  if line.qty > tonumber(ARGV[b + 3]) then return {'STOCK', ARGV[b]} end " +
+            "  table.insert(lines, line) " +
+            "end " +
+            "local nextId = 0 " +
+            "if missing > 0 then " +
+            "  local seq, limit = redis.call('GET', KEYS[3]), redis.call('GET', KEYS[5]) " +
+            "  if not seq or not limit or tonumber(seq) + missing > tonumber(limit) then return {'NOSEQ'} end " +
+            "  nextId = redis.call('INCRBY', KEYS[3], missing) - missing " +
+            "end " +
+            "local hset, out = {}, {'OK'} " +
+            "for _, line in ipairs(lines) do " +
+            "  if not line.id then nextId = nextId + 1 line.id = nextId end " +
+            "  local value = line.id .. '|' .. line.qty .. '|' .. line.price .. '|' .. line.added " +
+            "  table.insert(hset, line.field) table.insert(hset, value) " +
+            "  table.insert(out, line.field) table.insert(out, value) " +
+            "end " +
+            "redis.call('HSET', KEYS[1], unpack(hset)) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[3]) " +
+            "redis.call('DEL', KEYS[4]) " +
+            "redis.call('ZADD', KEYS[2], 'NX', ARGV[1], ARGV[2]) " +
+            "return out", List.class);
+
+    // Sets or increments a line's quantity and optionally moves it to another size, merging into
+    // the line already holding that (product, size).
+    // KEYS: cart, dirty  ARGV: cartId, qty|'', 'set'|'inc', newField|'', ceiling, now, userId, ttlSeconds
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> UPDATE_SCRIPT = new DefaultRedisScript<>(
+            "local all = redis.call('HGETALL', KEYS[1]) " +
+            "local prefix = ARGV[1] .. '|' " +
+            "local field, value " +
+            "for i = 1, #all, 2 do " +
+            "  if string.sub(all[i + 1], 1, #prefix) == prefix then field = all[i] value = all[i + 1] break end " +
+            "end " +
+            "if not field then return {'MISSING'} end " +
+            "local id, q, price, added = string.match(value, '^(%d+)|(%d+)|([^|]*)|(%d+)$') " +
+            "local qty = tonumber(q) " +
+            "if ARGV[2] ~= '' then " +
+            "  if ARGV[3] == 'inc' then qty = qty + tonumber(ARGV[2]) else qty = tonumber(ARGV[2]) end " +
+            "end " +
+            "local target = field " +
+            "if ARGV[4] ~= '' and ARGV[4] ~= field then " +
+            "  target = ARGV[4] " +
+            "  local other = redis.call('HGET', KEYS[1], target) " +
+            "  if other then " +
+            "    local oq " +
+            "    id, oq, price, added = string.match(other, '^(%d+)|(%d+)|([^|]*)|(%d+)$') " +
+            "    qty = qty + tonumber(oq) " +
+            "  end " +
+            "end " +
+            "if qty > tonumber(ARGV[5]) then return {'STOCK'} end " +
+            "if target ~= field then redis.call('HDEL', KEYS[1], field) end " +
+            "local updated = id .. '|' .. qty .. '|' .. price .. '|' .. added " +
+            "redis.call('HSET', KEYS[1], target, updated) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[8]) " +
+            "redis.call('ZADD', KEYS[2], 'NX', ARGV[6], ARGV[7]) " +
+            "return {'OK', target, updated}", List.class);
+
+    // Removing the last line leaves the emptied marker, since Redis drops the empty hash
+    // KEYS: cart, dirty, emptied  ARGV: cartId, now, userId, ttlSeconds
+    private static final RedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>(
+            "local all = redis.call('HGETALL', KEYS[1]) " +
+            "local prefix = ARGV[1] .. '|' " +
+            "for i = 1, #all, 2 do " +
+            "  if string.sub(all[i + 1], 1, #prefix) == prefix then " +
+            "    redis.call('HDEL', KEYS[1], all[i]) " +
+            "    if #all == 2 then redis.call('SET', KEYS[3], '1', 'EX', ARGV[4]) end " +
+            "    redis.call('ZADD', KEYS[2], 'NX', ARGV[2], ARGV[3]) " +
+            "    return 1 " +
+            "  end " +
+            "end " +
+            "return 0", Long.class);
+
+    // Cold load from MySQL. Skipped when the cart already exists or was emptied, checked in the
+    // same step as the write, so a mutation that got there first is never overwritten.
+    // KEYS: cart, emptied, dirty  ARGV: ttlSeconds, now, merged '1'|'0', userId, then (field, value)...
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 or redis.call('EXISTS', KEYS[2]) == 1 then return 0 end " +
+            "for i = 5, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "if ARGV[3] == '1' then redis.call('ZADD', KEYS[3], 'NX', ARGV[2], ARGV[4]) end " +
+            "return 1", Long.class);
+
+    // Drops a cached cart only if it has no unflushed changes, in one step so a mutation can't
+    // land between the check and the delete
+    // KEYS: cart or emptied marker, dirty, flushing  ARGV: userId
+    private static final RedisScript<Long> DROP_IF_CLEAN_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('ZSCORE', KEYS[2], ARGV[1]) or redis.call('ZSCORE', KEYS[3], ARGV[1]) then return 0 end " +
+            "return redis.call('DEL', KEYS[1])", Long.class);
+
+    // A row owned by another user is left alone: an id collision must never move a line between carts
+    private static final String UPSERT_SQL =
+            "INSERT INTO cart (id, userid, pid, price, quantity, size, added_at) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE pid = IF(userid = VALUES(userid), VALUES(pid), pid), " +
+            "price = IF(userid = VALUES(userid), VALUES(price), price), " +
+            "quantity = IF(userid = VALUES(userid), VALUES(quantity), quantity), " +
+            "size = IF(userid = VALUES(userid), VALUES(size), size)";
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private Timer flushTimer;
+    private Counter flushedLines;
+    private Counter flushFailures;
+    private Counter lostCarts;
+    private Counter parkedCarts;
+    private volatile String redisRunId;
+
+    private record ClaimedCart(Long userId, double dirtySince, List<CartLine> lines) {}
+
+    @PostConstruct
+    public void init() {
+        flushTimer = Timer.builder("cart.writebehind.flush").register(meterRegistry);
+        flushedLines = Counter.builder("cart.writebehind.flushed.lines").register(meterRegistry);
+        flushFailures = Counter.builder("cart.writebehind.failures").register(meterRegistry);
+        lostCarts = Counter.builder("cart.writebehind.lost").register(meterRegistry);
+        parkedCarts = Counter.builder("cart.writebehind.parked").register(meterRegistry);
+        Gauge.builder("cart.writebehind.lag.seconds", lagMillis, v -> v.get() / 1000.0).register(meterRegistry);
+        Gauge.builder("cart.writebehind.pending", pending, AtomicLong::get).register(meterRegistry);
+
+        if (!enabled) return;
+        try {
+            requeueAbandoned();
+            reserveIdBlock();
+            redisRunId = currentRunId();
+        } catch (Exception e) {
+            System.err.println("Cart write-behind startup recovery failed: " + e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long nextCartId() {
+        Long id = stringRedisTemplate.execute(NEXT_ID_SCRIPT, SEQUENCE_KEYS);
+        if (id == null || id < 0) {
+            reserveIdBlock();
+            id = stringRedisTemplate.execute(NEXT_ID_SCRIPT, SEQUENCE_KEYS);
+        }
+        if (id == null || id < 0) {
+            throw new RuntimeException("No cart ids available, please try again");
+        }
+        return id;
+    }
+
+    // All mutations run server-side in one round trip, so concurrent clicks can't lose updates
+    public CartLine addOrMerge(Long userId, Long productId, String size, int quantity, BigDecimal price, int ceiling) {
+        List<Object> result = runScript(ADD_SCRIPT, List.of(cartKey(userId), DIRTY_KEY, SEQUENCE_KEY, emptiedKey(userId), SEQUENCE_LIMIT_KEY),
+                CartLine.field(productId, size), String.valueOf(quantity), price.toPlainString(),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(ceiling), String.valueOf(userId), ttlSeconds());
+        if ("NOSEQ".equals(result.get(0))) {
+            reserveIdBlock();
+            result = runScript(ADD_SCRIPT, List.of(cartKey(userId), DIRTY_KEY, SEQUENCE_KEY, emptiedKey(userId), SEQUENCE_LIMIT_KEY),
+                    CartLine.field(productId, size), String.valueOf(quantity), price.toPlainString(),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(ceiling), String.valueOf(userId), ttlSeconds());
+        }
+        if ("NOSEQ".equals(result.get(0))) {
+            throw new RuntimeException("No cart ids available, please try again");
+        }
+        if ("STOCK".equals(result.get(0))) {
+            throw new RuntimeException("Insufficient stock. Available: " + ceiling);
+        }
+        return CartLine.decode(String.valueOf(result.get(1)), String.valueOf(result.get(2)));
+    }
+
+    // additions must hold at most one line per (product, size); ceilings are keyed by product id
+    public List<CartLine> addAllOrMerge(Long userId, List<CartLine> additions, Map<Long, Integer> ceilings) {
+        List<String> args = new ArrayList<>(3 + additions.size() * 4);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(userId));
+        args.add(ttlSeconds());
+        for (CartLine line : additions) {
+            args.add(line.field());
+            args.add(String.valueOf(line.quantity()));
+            args.add(line.price().toPlainString());
+            args.add(String.valueOf(ceilings.get(line.pid())));
+        }
+        List<String> keys = List.of(cartKey(userId), DIRTY_KEY, SEQUENCE_KEY, emptiedKey(userId), SEQUENCE_LIMIT_KEY);
+        List<Object> result = runScript(BULK_ADD_SCRIPT, keys, args.toArray());
+        if ("NOSEQ".equals(result.get(0))) {
+            reserveIdBlock();
+            result = runScript(BULK_ADD_SCRIPT, keys, args.toArray());
+        }
+        if ("NOSEQ".equals(result.get(0))) {
+            throw new RuntimeException("No cart ids available, please try again");
+        }
+        if ("STOCK".equals(result.get(0))) {
+            String field = String.valueOf(result.get(1));
+            Long pid = Long.valueOf(field.substring(0, field.indexOf('|')));
+            throw new RuntimeException("Insufficient stock for product " + pid + ". Available: " + ceilings.get(pid));
+        }
+
+        List<CartLine> lines = new ArrayList<>(additions.size());
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            lines.add(CartLine.decode(String.valueOf(result.get(i)), String.valueOf(result.get(i + 1))));
+        }
+        return lines;
+    }
+
+    public CartLine updateLine(Long userId, CartLine line, Integer quantity, boolean increment, String size, int ceiling) {
+        String newField = size != null ? CartLine.field(line.pid(), size) : "";
+        List<Object> result = runScript(UPDATE_SCRIPT, List.of(cartKey(userId), DIRTY_KEY),
+                String.valueOf(line.cartId()), quantity != null ? String.valueOf(quantity) : "",
+                increment ? "inc" : "set", newField, String.valueOf(ceiling),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(userId), ttlSeconds());
+        if ("MISSING".equals(result.get(0))) {
+            throw new RuntimeException("Cart item not found");
+        }
+        if ("STOCK".equals(result.get(0))) {
+            throw new RuntimeException(increment ? "Cannot exceed available stock"
+                    : "Insufficient stock. Available: " + ceiling);
+        }
+        return CartLine.decode(String.valueOf(result.get(1)), String.valueOf(result.get(2)));
+    }
+
+    public void removeLine(Long userId, Long cartId) {
+        Long removed = stringRedisTemplate.execute(REMOVE_SCRIPT, List.of(cartKey(userId), DIRTY_KEY, emptiedKey(userId)),
+                String.valueOf(cartId), String.valueOf(System.currentTimeMillis()), String.valueOf(userId), ttlSeconds());
+        if (removed == null || removed == 0) {
+            throw new RuntimeException("Cart item not found");
+        }
+    }
+
+    // Fills the Redis cart from MySQL unless it is already there; marks it dirty when duplicate
+    // rows were merged so the flusher removes the extras. False when the load was skipped.
+    public boolean load(Long userId, Map<String, String> lines, boolean merged) {
+        if (lines.isEmpty()) return false;
+        List<String> args = new ArrayList<>(4 + lines.size() * 2);
+        args.add(ttlSeconds());
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(merged ? "1" : "0");
+        args.add(String.valueOf(userId));
+        lines.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        Long loaded = stringRedisTemplate.execute(LOAD_SCRIPT, List.of(cartKey(userId), emptiedKey(userId), DIRTY_KEY),
+                args.toArray());
+        return loaded != null && loaded == 1;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Object> runScript(RedisScript<List> script, List<String> keys, Object... args) {
+        List<Object> result = stringRedisTemplate.execute(script, keys, args);
+        if (result == null || result.isEmpty()) {
+            throw new RuntimeException("Cart update failed");
+        }
+        return result;
+    }
+
+    private static String ttlSeconds() {
+        return String.valueOf(TimeUnit.HOURS.toSeconds(CART_TTL_HOURS));
+    }
+
+    public void clear(Long userId) {
+        mutate(userId, ops -> {
+            ops.delete(cartKey(userId));
+            ops.opsForValue().set(emptiedKey(userId), "1", CART_TTL_HOURS, TimeUnit.HOURS);
+        });
+    }
+
+    // A missing hash with the marker is an empty cart; without it the cart is simply not cached
+    public boolean isEmptied(Long userId) {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(emptiedKey(userId)));
+    }
+
+    public boolean hasPendingChanges(Long userId) {
+        String member = String.valueOf(userId);
+        ZSetOperations<String, String> zset = stringRedisTemplate.opsForZSet();
+        return zset.score(DIRTY_KEY, member) != null || zset.score(FLUSHING_KEY, member) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mutate(Long userId, Consumer<RedisOperations<String, String>> change) {
+        stringRedisTemplate.execute(new SessionCallback<List<Object>>() {
+            @Override
+            public List<Object> execute(RedisOperations operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.multi();
+                change.accept(ops);
+                ops.expire(cartKey(userId), CART_TTL_HOURS, TimeUnit.HOURS);
+                ops.opsForZSet().addIfAbsent(DIRTY_KEY, String.valueOf(userId), System.currentTimeMillis());
+                return ops.exec();
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled) return;
+        try {
+            reconcileIfRedisRestarted();
+            requeueAbandoned();
+            while (flushBatch() == batchSize) {
+                // keep draining while full batches are waiting
+            }
+            updateLag();
+        } catch (Exception e) {
+            flushFailures.increment();
+            System.err.println("Cart write-behind flush failed: " + e.getMessage());
+        }
+    }
+
+    private synchronized int flushBatch() {
+        Set<String> users = stringRedisTemplate.opsForZSet().range(DIRTY_KEY, 0, batchSize - 1);
+        if (users == null || users.isEmpty()) return 0;
+
+        List<ClaimedCart> claimed = new ArrayList<>();
+        for (String user : users) {
+            ClaimedCart cart = claim(Long.valueOf(user));
+            if (cart != null) claimed.add(cart);
+        }
+        if (claimed.isEmpty()) return 0;
+
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> write(claimed)));
+        } catch (RuntimeException e) {
+            System.err.println("Cart write-behind batch of " + claimed.size() + " carts failed, retrying one by one: " + e.getMessage());
+            writeOneByOne(claimed);
+            return users.size();
+        }
+
+        stringRedisTemplate.opsForZSet().remove(FLUSHING_KEY,
+                claimed.stream().map(cart -> String.valueOf(cart.userId())).toArray());
+        flushedLines.increment(claimed.stream().mapToInt(cart -> cart.lines().size()).sum());
+        return users.size();
+    }
+
+    // One bad cart must not hold back the rest of the batch, nor come back first on every tick
+    private void writeOneByOne(List<ClaimedCart> claimed) {
+        RuntimeException retryable = null;
+        for (ClaimedCart cart : claimed) {
+            String user = String.valueOf(cart.userId());
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(List.of(cart)));
+                flushedLines.increment(cart.lines().size());
+            } catch (DataIntegrityViolationException e) {
+                parkedCarts.increment();
+                System.err.println("Cart for user " + user + " rejected by MySQL, parking it: " + e.getMessage());
+                stringRedisTemplate.opsForZSet().add(PARKED_KEY, user, System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                // Put it back with its original timestamp so lag keeps counting from the first change
+                stringRedisTemplate.opsForZSet().addIfAbsent(DIRTY_KEY, user, cart.dirtySince());
+                retryable = e;
+            }
+            stringRedisTemplate.opsForZSet().remove(FLUSHING_KEY, user);
+        }
+        // MySQL itself is failing; stop draining until the next tick
+        if (retryable != null) throw retryable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ClaimedCart claim(Long userId) {
+        List<Object> result = stringRedisTemplate.execute(CLAIM_SCRIPT,
+                List.of(cartKey(userId), DIRTY_KEY, FLUSHING_KEY, emptiedKey(userId)), String.valueOf(userId),
+                String.valueOf(System.currentTimeMillis()));
+        if (result == null || result.isEmpty()) return null;
+        if ("GONE".equals(result.get(0))) {
+            // Never read as "emptied": that would delete the user's saved cart
+            lostCarts.increment();
+            System.err.println("Cart for user " + userId + " left Redis before it was flushed; keeping the MySQL copy");
+            return null;
+        }
+
+        double dirtySince = Double.parseDouble(String.valueOf(result.get(0)));
+        List<CartLine> lines = new ArrayList<>();
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            lines.add(CartLine.decode(String.valueOf(result.get(i)), String.valueOf(result.get(i + 1))));
+        }
+        return new ClaimedCart(userId, dirtySince, lines);
+    }
+
+    // MySQL ends up mirroring the Redis cart exactly: rows not in Redis are deleted, the rest upserted.
+    // A claim only comes back with no lines when the cart was explicitly emptied.
+    private void write(List<ClaimedCart> carts) {
+        List<Object[]> upserts = new ArrayList<>();
+        for (ClaimedCart cart : carts) {
+            if (cart.lines().isEmpty()) {
+                jdbcTemplate.update("DELETE FROM cart WHERE userid = ?", cart.userId());
+                continue;
+            }
+
+            List<Object> args = new ArrayList<>();
+            args.add(cart.userId());
+            StringBuilder placeholders = new StringBuilder();
+            for (CartLine line : cart.lines()) {
+                if (placeholders.length() > 0) placeholders.append(',');
+                placeholders.append('?');
+                args.add(line.cartId());
+                upserts.add(new Object[] {
+                        line.cartId(), cart.userId(), line.pid(), line.price(), line.quantity(), line.size(),
+                        Timestamp.valueOf(line.addedAtTime())
+                });
+            }
+            jdbcTemplate.update("DELETE FROM cart WHERE userid = ? AND id NOT IN (" + placeholders + ")", args.toArray());
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+        }
+    }
+
+    private void updateLag() {
+        Set<ZSetOperations.TypedTuple<String>> oldest = stringRedisTemplate.opsForZSet().rangeWithScores(DIRTY_KEY, 0, 0);
+        Long size = stringRedisTemplate.opsForZSet().zCard(DIRTY_KEY);
+        pending.set(size != null ? size : 0);
+        if (oldest == null || oldest.isEmpty()) {
+            lagMillis.set(0);
+        } else {
+            Double since = oldest.iterator().next().getScore();
+            lagMillis.set(since != null ? Math.max(0, System.currentTimeMillis() - since.longValue()) : 0);
+        }
+    }
+
+    // After a Redis restart the id sequence may be gone or restored behind ids already used, and
+    // any cart that isn't marked dirty may be an older snapshot than what was already flushed -
+    // MySQL wins for those.
+    private void reconcileIfRedisRestarted() {
+        String runId = currentRunId();
+        if (runId == null || runId.equals(redisRunId)) return;
+
+        System.out.println("Redis restart detected, reconciling carts");
+        reserveIdBlock();
+        for (String prefix : List.of(CART_KEY_PREFIX, EMPTIED_KEY_PREFIX)) {
+            ScanOptions options = ScanOptions.scanOptions().match(prefix + "*").count(1000).build();
+            try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+                cursor.forEachRemaining(key -> stringRedisTemplate.execute(DROP_IF_CLEAN_SCRIPT,
+                        List.of(key, DIRTY_KEY, FLUSHING_KEY), key.substring(prefix.length())));
+            }
+        }
+        redisRunId = runId;
+    }
+
+    // A node that died mid-flush leaves its claims behind; hand them back to the queue
+    private void requeueAbandoned() {
+        Set<ZSetOperations.TypedTuple<String>> inFlight = stringRedisTemplate.opsForZSet()
+                .rangeByScoreWithScores(FLUSHING_KEY, 0, System.currentTimeMillis() - ABANDONED_CLAIM_MILLIS);
+        if (inFlight == null) return;
+        for (ZSetOperations.TypedTuple<String> entry : inFlight) {
+            stringRedisTemplate.opsForZSet().addIfAbsent(DIRTY_KEY, entry.getValue(), entry.getScore());
+            stringRedisTemplate.opsForZSet().remove(FLUSHING_KEY, entry.getValue());
+        }
+    }
+
+    // Every block comes from above whatever id_generators has handed out, so it lies past both the
+    // JPA generator's blocks and every id Redis issued before (even from a sequence restored stale)
+    private void reserveIdBlock() {
+        long first = idGenerators.reserveBlock("cart", idBlockSize);
+        stringRedisTemplate.execute(INSTALL_BLOCK_SCRIPT, SEQUENCE_KEYS,
+                String.valueOf(first - 1), String.valueOf(first + idBlockSize - 1));
+    }
+
+    private String currentRunId() {
+        Properties info = stringRedisTemplate.execute(
+                (RedisCallback<Properties>) connection -> connection.serverCommands().info("server"));
+        return info != null ? info.getProperty("run_id") : null;
+    }
+
+    private static String cartKey(Long userId) {
+        return CART_KEY_PREFIX + userId;
+    }
+
+    private static String emptiedKey(Long userId) {
+        return EMPTIED_KEY_PREFIX + userId;
+    }
+
+    // Drains everything still pending before the datasource goes away
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) return;
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                if (flushBatch() == 0) break;
+            }
+            Long left = stringRedisTemplate.opsForZSet().zCard(DIRTY_KEY);
+            if (left != null && left > 0) {
+                System.err.println("Cart write-behind shutdown left " + left + " carts pending in Redis");
+            }
+        } catch (Exception e) {
+            System.err.println("Cart write-behind shutdown flush failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class CatalogIndexInitializer {
+    
+    private static final int BATCH_SIZE = 1000;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
+    @Autowired
+    private RatingAggregationService ratingAggregationService;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndexes() {
+        long start = System.currentTimeMillis();
+        productSearchIndex.clear();
+        productFacetIndex.clear();
+        
+        // Walk the catalog with keyset pages and index each batch in parallel
+        List<Product> batch = productRepository.findFirstByPid(PageRequest.of(0, BATCH_SIZE));
+        while (!batch.isEmpty()) {
+            ratingAggregationService.populateRatingData(batch);
+            productSearchIndex.indexAll(batch);
+            productFacetIndex.indexAll(batch);
+            if (batch.size() < BATCH_SIZE) break;
+            Long lastPid = batch.get(batch.size() - 1).getPid();
+            batch = productRepository.findNextByPid(lastPid, PageRequest.of(0, BATCH_SIZE));
+        }
+        
+        System.out.println("Indexed " + productSearchIndex.size() + " products for search and facets in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,224 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ApiResponse;
+import com.ecommerce.entity.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+public class CatalogSnapshotService implements MessageListener {
+    
+    public static final String CHANNEL = "catalog:changed";
+    private static final Set<String> SNAPSHOT_SORTS = Set.of("pid", "price", "name");
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    
+    @Value("${catalog.snapshot.hot-pages:3}")
+    private int hotPages;
+    
+    @Value("${catalog.snapshot.max-page-size:50}")
+    private int maxPageSize;
+    
+    @Value("${catalog.snapshot.rebuild-delay-ms:250}")
+    private long rebuildDelayMs;
+    
+    // Upper bound on staleness if a change notification from another node is lost
+    @Value("${catalog.snapshot.max-age-seconds:60}")
+    private long maxAgeSeconds;
+    
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Set<String> staleKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-snapshot-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public boolean isSnapshotted(int page, int size, String sortBy) {
+        return page >= 0 && page < hotPages && isCacheable(size, sortBy);
+    }
+    
+    // Page shapes worth keeping server-side: a known sort field and a bounded page size
+    public boolean isCacheable(int size, String sortBy) {
+        return size > 0 && size <= maxPageSize && SNAPSHOT_SORTS.contains(sortBy);
+    }
+    
+    public Snapshot getSnapshot(int page, int size, String sortBy) {
+        // Built outside the map so the queries and serialization don't hold a bin lock; a racing
+        // cold request may build the same page twice, and the first one stored wins
+        Snapshot snapshot = snapshots.get(key(page, size, sortBy));
+        if (snapshot == null) {
+            Snapshot built = build(page, size, sortBy);
+            snapshot = snapshots.putIfAbsent(key(page, size, sortBy), built);
+            if (snapshot == null) snapshot = built;
+        }
+        if (System.currentTimeMillis() - snapshot.builtAt > TimeUnit.SECONDS.toMillis(maxAgeSeconds)) {
+            staleKeys.add(key(page, size, sortBy));
+            scheduleRebuild();
+        }
+        return snapshot;
+    }
+    
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+    
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        markStale(event);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, event.encode());
+        } catch (Exception e) {
+            System.err.println("Catalog change publish failed: " + e.getMessage());
+        }
+    }
+    
+    // Changes made on other nodes; the index reload runs off the listener thread
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        ProductChangedEvent event = ProductChangedEvent.decode(new String(message.getBody(), StandardCharsets.UTF_8));
+        markStale(event);
+        rebuilder.execute(() -> {
+            try {
+                productService.applyRemoteChange(event.getProductId());
+            } catch (Exception e) {
+                System.err.println("Reindex of product " + event.getProductId() + " failed: " + e.getMessage());
+            }
+        });
+    }
+    
+    // Only snapshots that contain the product are rebuilt, except for new products which shift every page
+    private void markStale(ProductChangedEvent event) {
+        snapshots.forEach((key, snapshot) -> {
+            if (event.getChange() == ProductChangedEvent.Change.CREATED || snapshot.pids.contains(event.getProductId())) {
+                staleKeys.add(key);
+            }
+        });
+        scheduleRebuild();
+    }
+    
+    // Coalesces bursts of product writes into one rebuild; stale bytes are served until it finishes
+    private void scheduleRebuild() {
+        if (!staleKeys.isEmpty() && rebuildScheduled.compareAndSet(false, true)) {
+            rebuilder.schedule(this::rebuildStale, rebuildDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void rebuildStale() {
+        rebuildScheduled.set(false);
+        for (String key : staleKeys) {
+            staleKeys.remove(key);
+            String[] parts = key.split(":");
+            int page = Integer.parseInt(parts[0]);
+            int size = Integer.parseInt(parts[1]);
+            try {
+                snapshots.put(key, build(page, size, parts[2]));
+            } catch (Exception e) {
+                snapshots.remove(key);
+                System.err.println("Catalog snapshot rebuild failed for " + key + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    private Snapshot build(int page, int size, String sortBy) {
+        try {
+            Page<Product> products = productService.getAllProducts(PageRequest.of(page, size, Sort.by(sortBy)));
+            byte[] json = objectMapper.writeValueAsBytes(
+                    ApiResponse.success("Products retrieved successfully", products));
+            Set<Long> pids = products.getContent().stream().map(Product::getPid).collect(Collectors.toSet());
+            return new Snapshot(json, gzip(json), etag(json), pids);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to build catalog snapshot", e);
+        }
+    }
+    
+    private static String key(int page, int size, String sortBy) {
+        return page + ":" + size + ":" + sortBy;
+    }
+    
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        }
+        return buffer.toByteArray();
+    }
+    
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+    
+    public static class Snapshot {
+        private final byte[] json;
+        private final byte[] gzipped;
+        private final String etag;
+        private final Set<Long> pids;
+        private final long builtAt = System.currentTimeMillis();
+        
+        public Snapshot(byte[] json, byte[] gzipped, String etag, Set<Long> pids) {
+            this.json = json;
+            this.gzipped = gzipped;
+            this.etag = etag;
+            this.pids = pids;
+        }
+        
+        public byte[] getJson() { return json; }
+        public byte[] getGzipped() { return gzipped; }
+        
+        // The two encodings are different bytes, so each gets its own strong validator
+        public String getEtag(boolean gzip) {
+            return gzip ? etag.substring(0, etag.length() - 1) + "-gzip\"" : etag;
+        }
+    }
+}
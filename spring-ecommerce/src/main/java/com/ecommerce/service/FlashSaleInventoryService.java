@@ -0,0 +1,305 @@
+package com.ecommerce.service;
+
+import com.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Flash-sale mode for hot products: while it is on, the product's stock lives in N Redis
+// sub-counters (separate keys, so a cluster spreads them over nodes) instead of one MySQL row.
+// A checkout decrements one random shard, and only walks the others when that one runs short.
+// product.stock becomes a mirror that the reconciler refreshes from the shard totals.
+@Service
+public class FlashSaleInventoryService {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${flash-sale.default-shards:16}")
+    private int defaultShards;
+
+    @Value("${flash-sale.max-shards:256}")
+    private int maxShards;
+
+    // pid -> shard count for every product currently in flash-sale mode
+    private static final String PRODUCTS_KEY = "flash:products";
+    private static final String SHARD_KEY_PREFIX = "flash:stock:";
+
+    // Takes up to ARGV[1] units from one shard and returns how many it got
+    private static final RedisScript<Long> TAKE_UP_TO_SCRIPT = new DefaultRedisScript<>(
+            "local available = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            "local n = math.min(available, tonumber(ARGV[1])) " +
+            "if n > 0 then redis.call('DECRBY', KEYS[1], n) end " +
+            "return n", Long.class);
+
+    // Products whose claims had to walk past a dry shard; evened out on the next reconcile tick
+    private final Set<Long> needsRebalance = ConcurrentHashMap.newKeySet();
+    private Counter claims;
+    private Counter shortfalls;
+    private Counter spills;
+
+    @PostConstruct
+    public void init() {
+        claims = Counter.builder("inventory.flash.claims").register(meterRegistry);
+        shortfalls = Counter.builder("inventory.flash.shortfalls").register(meterRegistry);
+        spills = Counter.builder("inventory.flash.spills").register(meterRegistry);
+    }
+
+    // One HMGET per checkout; products missing from the result use the MySQL row
+    public Map<Long, Integer> activeShards(Collection<Long> pids) {
+        List<Object> fields = new ArrayList<>(pids.size());
+        for (Long pid : pids) fields.add(String.valueOf(pid));
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(PRODUCTS_KEY, fields);
+
+        Map<Long, Integer> active = new HashMap<>();
+        int i = 0;
+        for (Long pid : pids) {
+            Object value = values.get(i++);
+            if (value != null) active.put(pid, Integer.valueOf((String) value));
+        }
+        return active;
+    }
+
+    // Claims every line or none. Inside a transaction the claims are handed back if it rolls back.
+    // Returns the pid that could not be covered, or null on success.
+    public Long claimAll(Map<Long, Integer> quantities, Map<Long, Integer> shards) {
+        Map<Long, Integer> claimed = new HashMap<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            if (!claim(line.getKey(), line.getValue(), shards.get(line.getKey()))) {
+                claimed.forEach(this::giveBack);
+                return line.getKey();
+            }
+            claimed.put(line.getKey(), line.getValue());
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) claimed.forEach(FlashSaleInventoryService.this::giveBack);
+                }
+            });
+        }
+        return null;
+    }
+
+    boolean claim(Long pid, int quantity, int shardCount) {
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        int remaining = quantity;
+        Map<Integer, Long> taken = new HashMap<>();
+        int visited = 0;
+        while (remaining > 0 && visited < shardCount) {
+            int shard = (start + visited++) % shardCount;
+            Long got = stringRedisTemplate.execute(TAKE_UP_TO_SCRIPT, List.of(shardKey(pid, shard)),
+                    String.valueOf(remaining));
+            if (got != null && got > 0) {
+                taken.put(shard, got);
+                remaining -= got;
+            }
+        }
+
+        if (visited > 1) {
+            spills.increment();
+            needsRebalance.add(pid);
+        }
+        if (remaining > 0) {
+            taken.forEach((shard, n) -> stringRedisTemplate.opsForValue().increment(shardKey(pid, shard), n));
+            shortfalls.increment();
+            return false;
+        }
+        claims.increment();
+        return true;
+    }
+
+    // Returns stock to a random shard; false if the product isn't in flash-sale mode
+    public boolean giveBack(Long pid, int quantity) {
+        Object shards = stringRedisTemplate.opsForHash().get(PRODUCTS_KEY, String.valueOf(pid));
+        if (shards == null) return false;
+        int shard = ThreadLocalRandom.current().nextInt(Integer.parseInt((String) shards));
+        stringRedisTemplate.opsForValue().increment(shardKey(pid, shard), quantity);
+        return true;
+    }
+
+    public int totalStock(Long pid, int shardCount) {
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(shardKeys(pid, shardCount));
+        int total = 0;
+        if (values != null) {
+            for (String value : values) {
+                if (value != null) total += Integer.parseInt(value);
+            }
+        }
+        return total;
+    }
+
+    // Setting flash_shards takes the row lock, so a checkout already on its way to the MySQL row
+    // either commits before the stock is read here or finds the row switched over and fails
+    public void enable(Long pid, Integer shardCount) {
+        int shards = shardCount != null ? shardCount : defaultShards;
+        if (shards < 1 || shards > maxShards) {
+            throw new RuntimeException("Shard count must be between 1 and " + maxShards);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int updated = jdbcTemplate.update(
+                        "UPDATE product SET flash_shards = ?, version = version + 1 WHERE pid = ? AND flash_shards IS NULL",
+                        shards, pid);
+                if (updated == 0) {
+                    throw new RuntimeException("Product not found or already in a flash sale");
+                }
+                int stock = jdbcTemplate.queryForObject("SELECT stock FROM product WHERE pid = ?", Integer.class, pid);
+
+                Map<String, String> counters = new HashMap<>();
+                for (int shard = 0; shard < shards; shard++) {
+                    counters.put(shardKey(pid, shard), String.valueOf(stock / shards + (shard < stock % shards ? 1 : 0)));
+                }
+                stringRedisTemplate.opsForValue().multiSet(counters);
+                stringRedisTemplate.opsForHash().put(PRODUCTS_KEY, String.valueOf(pid), String.valueOf(shards));
+            });
+        } catch (RuntimeException e) {
+            stringRedisTemplate.opsForHash().delete(PRODUCTS_KEY, String.valueOf(pid));
+            throw e;
+        }
+        reindex(pid);
+        System.out.println("Flash sale enabled for product " + pid + " across " + shards + " shards");
+    }
+
+    // Drains the shards back into the MySQL row. Checkouts in the meantime see empty shards and fail
+    // rather than oversell; stock handed back while draining is swept up at the end.
+    public void disable(Long pid) {
+        Object value = stringRedisTemplate.opsForHash().get(PRODUCTS_KEY, String.valueOf(pid));
+        if (value == null) {
+            throw new RuntimeException("Product is not in a flash sale");
+        }
+        int shards = Integer.parseInt((String) value);
+
+        int drained = drain(pid, shards);
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                "UPDATE product SET stock = ?, flash_shards = NULL, version = version + 1 WHERE pid = ?", drained, pid));
+        stringRedisTemplate.opsForHash().delete(PRODUCTS_KEY, String.valueOf(pid));
+
+        int stragglers = drain(pid, shards);
+        if (stragglers > 0) {
+            jdbcTemplate.update("UPDATE product SET stock = stock + ?, version = version + 1 WHERE pid = ?", stragglers, pid);
+        }
+        stringRedisTemplate.delete(shardKeys(pid, shards));
+        needsRebalance.remove(pid);
+        reindex(pid);
+        System.out.println("Flash sale ended for product " + pid + ", " + (drained + stragglers) + " units returned");
+    }
+
+    private int drain(Long pid, int shards) {
+        int total = 0;
+        for (String key : shardKeys(pid, shards)) {
+            String previous = stringRedisTemplate.opsForValue().getAndSet(key, "0");
+            if (previous != null) total += Integer.parseInt(previous);
+        }
+        return total;
+    }
+
+    // Mirrors shard totals into product.stock for listings, caches and facets, and evens out shards
+    // that ran dry so claims go back to touching a single key
+    @Scheduled(fixedDelayString = "${flash-sale.reconcile-interval-ms:2000}")
+    public void reconcile() {
+        try {
+            Map<Object, Object> products = stringRedisTemplate.opsForHash().entries(PRODUCTS_KEY);
+            for (Map.Entry<Object, Object> entry : products.entrySet()) {
+                Long pid = Long.valueOf((String) entry.getKey());
+                int shards = Integer.parseInt((String) entry.getValue());
+                if (needsRebalance.remove(pid)) {
+                    rebalance(pid, shards);
+                }
+                int total = totalStock(pid, shards);
+                int updated = jdbcTemplate.update(
+                        "UPDATE product SET stock = ?, version = version + 1 WHERE pid = ? AND flash_shards IS NOT NULL AND stock <> ?",
+                        total, pid, total);
+                if (updated > 0) reindex(pid);
+            }
+        } catch (Exception e) {
+            System.err.println("Flash sale reconcile failed: " + e.getMessage());
+        }
+    }
+
+    // Moves units from the fullest shard into the ones below half the average. Each move is a
+    // conditional take then an increment; a crash in between strands units (never oversells).
+    private void rebalance(Long pid, int shards) {
+        List<String> keys = shardKeys(pid, shards);
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        if (values == null) return;
+
+        int[] counts = new int[shards];
+        int total = 0;
+        for (int i = 0; i < shards; i++) {
+            counts[i] = values.get(i) != null ? Integer.parseInt(values.get(i)) : 0;
+            total += counts[i];
+        }
+        int target = total / shards;
+        if (target == 0) return;
+
+        for (int dry = 0; dry < shards; dry++) {
+            if (counts[dry] * 2 >= target) continue;
+            int richest = 0;
+            for (int i = 1; i < shards; i++) {
+                if (counts[i] > counts[richest]) richest = i;
+            }
+            int wanted = Math.min(target - counts[dry], counts[richest] - target);
+            if (wanted <= 0) break;
+            Long moved = stringRedisTemplate.execute(TAKE_UP_TO_SCRIPT, List.of(keys.get(richest)), String.valueOf(wanted));
+            if (moved != null && moved > 0) {
+                stringRedisTemplate.opsForValue().increment(keys.get(dry), moved);
+                counts[richest] -= moved;
+                counts[dry] += moved;
+            }
+        }
+    }
+
+    private void reindex(Long pid) {
+        productRepository.findById(pid)
+                .ifPresent(product -> productService.reindex(product, ProductChangedEvent.Change.UPDATED));
+    }
+
+    private static String shardKey(Long pid, int shard) {
+        return SHARD_KEY_PREFIX + pid + ":" + shard;
+    }
+
+    private static List<String> shardKeys(Long pid, int shards) {
+        List<String> keys = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) keys.add(shardKey(pid, shard));
+        return keys;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ecommerce.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+// Entities draw pooled id blocks from id_generators. Before anything is inserted, each row is
+// raised above the highest id already in its table (rows inserted under IDENTITY, or with
+// explicit ids by the cart flusher), so the first block can't collide with existing rows.
+@Component
+public class IdGeneratorInitializer {
+
+    public static final String TABLE = "id_generators";
+    public static final int ALLOCATION_SIZE = 50;
+
+    // generator key -> "table.idColumn"
+    private static final Map<String, String> SOURCES = Map.of(
+            "orders", "orders.id",
+            "cart", "cart.id",
+            "review", "review.id",
+            "wishlist", "wishlist.id",
+            "product", "product.pid");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Injected only so this runs after Hibernate has created or updated the schema
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void seed() {
+        for (Map.Entry<String, String> source : SOURCES.entrySet()) {
+            String[] tableAndColumn = source.getValue().split("\\.");
+            Long maxId = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(" + tableAndColumn[1] + "), 0) FROM " + tableAndColumn[0], Long.class);
+            // Past one full block, whichever end of the block the pooled optimizer reads the value as
+            long floor = maxId + ALLOCATION_SIZE + 1;
+            jdbcTemplate.update("INSERT INTO " + TABLE + " (entity, next_val) VALUES (?, ?) " +
+                    "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))", source.getKey(), floor);
+        }
+    }
+
+    // Takes ids [first, first + size) out of the generator's range for an allocator outside
+    // Hibernate: the row is locked and moved past the block, so no pooled block can overlap it
+    public long reserveBlock(String entity, int size) {
+        return transactionTemplate.execute(status -> {
+            Long next = jdbcTemplate.queryForObject(
+                    "SELECT next_val FROM " + TABLE + " WHERE entity = ? FOR UPDATE", Long.class, entity);
+            // One block of margin on each side, whichever end of its block the pooled optimizer reads
+            long first = next + ALLOCATION_SIZE;
+            jdbcTemplate.update("UPDATE " + TABLE + " SET next_val = ? WHERE entity = ?",
+                    first + size + ALLOCATION_SIZE, entity);
+            return first;
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package com.ecommerce.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+public class ImageStorageService {
+    
+    private static final int BUFFER_SIZE = 8192;
+    private static final String URL_PREFIX = "/images/";
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,5})?");
+    
+    @Value("${app.images.dir:src/main/resources/static/images/}")
+    private String uploadDir;
+    
+    // Streams the upload to disk through a fixed buffer and stores it under its SHA-256,
+    // so an identical picture uploaded again reuses the existing file
+    public String store(MultipartFile image) throws IOException {
+        Path directory = Paths.get(uploadDir);
+        Files.createDirectories(directory);
+        
+        MessageDigest digest = sha256();
+        Path tempFile = Files.createTempFile(directory, "upload-", ".tmp");
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = image.getInputStream();
+                 OutputStream out = Files.newOutputStream(tempFile)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            
+            String fileName = HexFormat.of().formatHex(digest.digest()) + extension(image.getOriginalFilename());
+            Path target = directory.resolve(fileName);
+            if (!Files.exists(target)) {
+                try {
+                    Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // A concurrent upload of the same content won the race
+                }
+            }
+            return URL_PREFIX + fileName;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    // Returns null for names that escape the image directory or don't exist
+    public Path resolve(String fileName) {
+        Path directory = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        return file;
+    }
+    
+    // Hash-named files never change, so the hash doubles as a strong validator
+    public String contentHash(String fileName) {
+        Matcher matcher = CONTENT_ADDRESSED_NAME.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+    
+    private static String extension(String originalFilename) {
+        if (originalFilename == null) return "";
+        int dot = originalFilename.lastIndexOf('.');
+        if (dot < 0 || dot == originalFilename.length() - 1) return "";
+        String extension = originalFilename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return extension.matches("[a-z0-9]{1,5}") ? "." + extension : "";
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
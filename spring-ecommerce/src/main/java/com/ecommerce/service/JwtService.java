@@ -1,14 +1,24 @@
 package com.ecommerce.service;
 
 import com.ecommerce.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtService {
@@ -22,8 +32,42 @@ public class JwtService {
     @Value("${jwt.refresh-token-expiration}")
     private Long refreshTokenExpiration;
     
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+    
+    // Key and parser are immutable and thread-safe, so they are built once
+    private Key signingKey;
+    private JwtParser parser;
+    
+    // Verified claims keyed by token digest; each entry expires with the token itself
+    private Cache<String, Claims> verifiedClaims;
+    
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        Date expiration = claims.getExpiration();
+                        if (expiration == null) return 0;
+                        long remainingMillis = expiration.getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
     
     public String generateAccessToken(User user) {
@@ -34,31 +78,43 @@ public class JwtService {
                 .claim("tokenType", "ACCESS")
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + accessTokenExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
-    public String generateRefreshToken(User user) {
+    // Refresh tokens carry an id and a family so RefreshTokenService can rotate and revoke them
+    public String generateRefreshToken(User user, String familyId, String tokenId) {
         return Jwts.builder()
+                .setId(tokenId)
                 .setSubject(user.getEmail())
                 .claim("userId", user.getUserid())
+                .claim("family", familyId)
                 .claim("tokenType", "REFRESH")
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + refreshTokenExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
+    public Long getRefreshTokenExpiration() {
+        return refreshTokenExpiration;
+    }
+    
     public String generateToken(User user) {
         return generateAccessToken(user);
     }
     
+    // Parses and verifies a token once; repeat calls for the same token are a hash lookup
     public Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        String digest = digest(token);
+        Claims claims = verifiedClaims.getIfPresent(digest);
+        if (claims != null) {
+            return claims;
+        }
+        
+        claims = parser.parseClaimsJws(token).getBody();
+        verifiedClaims.put(digest, claims);
+        return claims;
     }
     
     public String extractEmail(String token) {
@@ -76,10 +132,18 @@ public class JwtService {
     
     public boolean validateToken(String token, String email) {
         try {
-            String tokenEmail = extractEmail(token);
-            return tokenEmail.equals(email) && isTokenValid(token);
+            return extractClaims(token).getSubject().equals(email);
         } catch (Exception e) {
             return false;
         }
     }
-}
\ No newline at end of file
+    
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Opaque order-history position: the last row's order date and id (newest first)
+public class OrderCursor {
+    
+    private static final String SEPARATOR = "|";
+    
+    private final LocalDateTime orderDate;
+    private final Long id;
+    
+    public OrderCursor(LocalDateTime orderDate, Long id) {
+        this.orderDate = orderDate;
+        this.id = id;
+    }
+    
+    public LocalDateTime getOrderDate() { return orderDate; }
+    public Long getId() { return id; }
+    
+    public String encode() {
+        String raw = orderDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static OrderCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            return new OrderCursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | DateTimeParseException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderIntakeStatus;
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderIntake;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.User;
+import com.ecommerce.repository.OrderIntakeRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Async checkout: the request thread validates and reserves stock, then hands the orders to a
+// bounded queue and answers with a reference. One writer thread saves whatever has queued up
+// since its last commit in a single transaction, so under load many customers share a commit.
+// Each accepted checkout also leaves an order_intake row, committed with its stock; if the
+// queued copy is lost (crash, slow shutdown) the row is replayed into orders by recoverOrphans.
+@Service
+public class OrderIntakeService {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderIntakeRepository intakeRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserLookupService userLookupService;
+
+    @Autowired
+    private RedisCartService cartService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${order.intake.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${order.intake.batch-size:200}")
+    private int batchSize;
+
+    @Value("${order.intake.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    // Must comfortably exceed the time a checkout spends in any node's queue
+    @Value("${order.intake.orphan-after-ms:300000}")
+    private long orphanAfterMs;
+
+    @Value("${order.intake.recovery-batch-size:100}")
+    private int recoveryBatchSize;
+
+    private static final String STATUS_KEY_PREFIX = "order:intake:";
+    private static final long STATUS_TTL_HOURS = 1;
+
+    private record Ticket(String reference, Long userId, List<Order> orders) {}
+
+    private BlockingQueue<Ticket> queue;
+    private Thread writer;
+    private volatile boolean running;
+    private Counter rejected;
+    private Counter failures;
+    private Counter recovered;
+    private Timer commitTimer;
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        rejected = Counter.builder("order.intake.rejected").register(meterRegistry);
+        failures = Counter.builder("order.intake.failures").register(meterRegistry);
+        recovered = Counter.builder("order.intake.recovered").register(meterRegistry);
+        commitTimer = Timer.builder("order.intake.commit").register(meterRegistry);
+        batchSizes = DistributionSummary.builder("order.intake.batch.size").register(meterRegistry);
+        Gauge.builder("order.intake.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::drain, "order-intake-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Throws RejectedExecutionException when the queue is full; the reservation is handed back first
+    public OrderIntakeStatus submit(Long userId) {
+        if (queue.remainingCapacity() == 0) {
+            rejected.increment();
+            throw new RejectedExecutionException("Too many orders in progress, please retry shortly");
+        }
+
+        String reference = UUID.randomUUID().toString();
+        List<Order> orders = orderService.ordersFromCart(userId);
+        orders.forEach(order -> order.setIntakeRef(reference));
+        transactionTemplate.executeWithoutResult(status -> {
+            stockReservationService.hold(orders);
+            intakeRepository.insert(reference, userId, encodeLines(orders), orders.get(0).getReservedUntil(),
+                    LocalDateTime.now());
+        });
+
+        writeStatus(reference, userId, OrderIntakeStatus.State.QUEUED, List.of(), null);
+        Ticket ticket = new Ticket(reference, userId, orders);
+        if (!queue.offer(ticket)) {
+            transactionTemplate.executeWithoutResult(status -> discard(ticket));
+            stringRedisTemplate.delete(statusKey(reference));
+            rejected.increment();
+            throw new RejectedExecutionException("Too many orders in progress, please retry shortly");
+        }
+
+        cartService.clearCart(userId);
+        return new OrderIntakeStatus(reference, OrderIntakeStatus.State.QUEUED, List.of(), null);
+    }
+
+    // Falls back to MySQL when the status entry is missing or stuck at QUEUED, e.g. the node
+    // committed and died before recording it
+    public OrderIntakeStatus getStatus(Long userId, String reference) {
+        Map<Object, Object> entry = stringRedisTemplate.opsForHash().entries(statusKey(reference));
+        if (!entry.isEmpty() && !String.valueOf(userId).equals(entry.get("user"))) {
+            throw new RuntimeException("Order reference not found");
+        }
+
+        OrderIntakeStatus.State state = entry.isEmpty() ? null
+                : OrderIntakeStatus.State.valueOf((String) entry.get("state"));
+        if (state == null || state == OrderIntakeStatus.State.QUEUED) {
+            List<Long> saved = orderRepository.findIdsByIntakeRef(reference, userId);
+            if (!saved.isEmpty()) {
+                return new OrderIntakeStatus(reference, OrderIntakeStatus.State.COMMITTED, saved, null);
+            }
+            if (state == null && intakeRepository.existsByReferenceAndUserId(reference, userId)) {
+                return new OrderIntakeStatus(reference, OrderIntakeStatus.State.QUEUED, List.of(), null);
+            }
+            if (state == null) {
+                throw new RuntimeException("Order reference not found");
+            }
+        }
+        String error = (String) entry.get("error");
+        return new OrderIntakeStatus(reference, state, parseIds((String) entry.get("orders")),
+                error == null || error.isEmpty() ? null : error);
+    }
+
+    private void drain() {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Ticket first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                // Everything that queued behind the previous commit goes into this one
+                queue.drainTo(batch, batchSize - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Order intake writer error: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<Ticket> batch) {
+        batchSizes.record(batch.size());
+        try {
+            List<Ticket> saved = commitTimer.record(() -> transactionTemplate.execute(status -> save(batch)));
+            recordCommitted(saved);
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("Order intake group commit of " + batch.size() + " checkouts failed, retrying one by one: " + e.getMessage());
+        }
+
+        // One bad checkout must not sink the rest of the group
+        for (Ticket ticket : batch) {
+            ticket.orders().forEach(order -> order.setId(null));
+            try {
+                recordCommitted(transactionTemplate.execute(status -> save(List.of(ticket))));
+            } catch (RuntimeException e) {
+                failures.increment();
+                System.err.println("Order intake " + ticket.reference() + " failed: " + e.getMessage());
+                try {
+                    transactionTemplate.executeWithoutResult(status -> discard(ticket));
+                } catch (RuntimeException releaseError) {
+                    System.err.println("Could not release stock for " + ticket.reference() + ": " + releaseError.getMessage());
+                }
+                writeStatus(ticket.reference(), ticket.userId(), OrderIntakeStatus.State.FAILED, List.of(),
+                        "Order could not be saved, please try again");
+            }
+        }
+    }
+
+    // Saves the tickets whose intake row is still there and deletes those rows; a missing row
+    // means recoverOrphans already turned that checkout into orders
+    private List<Ticket> save(List<Ticket> tickets) {
+        Set<String> live = intakeRepository.lockAll(tickets.stream().map(Ticket::reference).toList()).stream()
+                .map(OrderIntake::getReference).collect(Collectors.toSet());
+        List<Ticket> saving = tickets.stream().filter(ticket -> live.contains(ticket.reference())).toList();
+        orderRepository.saveAll(saving.stream().flatMap(ticket -> ticket.orders().stream()).toList());
+        intakeRepository.deleteAllByIdInBatch(live);
+        return saving;
+    }
+
+    // Gives a checkout's stock back, unless it was already replayed into orders
+    private void discard(Ticket ticket) {
+        if (intakeRepository.lockAll(List.of(ticket.reference())).isEmpty()) return;
+        intakeRepository.deleteAllByIdInBatch(List.of(ticket.reference()));
+        stockReservationService.abandon(ticket.orders());
+    }
+
+    // Intake rows older than orphan-after-ms lost their queued copy; their stock is still taken,
+    // so they become orders now (or give the stock back if they can no longer be built)
+    @Scheduled(fixedDelayString = "${order.intake.recovery-interval-ms:60000}")
+    public void recoverOrphans() {
+        try {
+            List<String> orphans = intakeRepository.findOrphans(
+                    LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(orphanAfterMs)),
+                    PageRequest.of(0, recoveryBatchSize));
+            for (String reference : orphans) {
+                replay(reference);
+            }
+        } catch (Exception e) {
+            System.err.println("Order intake recovery failed: " + e.getMessage());
+        }
+    }
+
+    private void replay(String reference) {
+        try {
+            Ticket ticket = transactionTemplate.execute(status -> {
+                List<OrderIntake> locked = intakeRepository.lockAll(List.of(reference));
+                if (locked.isEmpty()) return null;  // its writer got there first
+                OrderIntake intake = locked.get(0);
+                List<Order> orders = rebuild(intake);
+                orderRepository.saveAll(orders);
+                intakeRepository.deleteAllByIdInBatch(List.of(reference));
+                return new Ticket(reference, intake.getUserId(), orders);
+            });
+            if (ticket != null) {
+                recovered.increment();
+                recordCommitted(List.of(ticket));
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            System.err.println("Order intake " + reference + " could not be replayed: " + e.getMessage());
+            Long userId = transactionTemplate.execute(status -> {
+                List<OrderIntake> locked = intakeRepository.lockAll(List.of(reference));
+                if (locked.isEmpty()) return null;
+                intakeRepository.deleteAllByIdInBatch(List.of(reference));
+                stockReservationService.abandon(stockOnly(locked.get(0)));
+                return locked.get(0).getUserId();
+            });
+            if (userId != null) {
+                writeStatus(reference, userId, OrderIntakeStatus.State.FAILED, List.of(),
+                        "Order could not be saved, please try again");
+            }
+        }
+    }
+
+    private List<Order> rebuild(OrderIntake intake) {
+        List<String[]> lines = decodeLines(intake.getLines());
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(lines.stream().map(line -> Long.valueOf(line[0])).toList())
+                .forEach(product -> products.put(product.getPid(), product));
+        User user = userLookupService.getUser(intake.getUserId());
+
+        List<Order> orders = new ArrayList<>(lines.size());
+        for (String[] line : lines) {
+            Product product = products.get(Long.valueOf(line[0]));
+            if (product == null) {
+                throw new RuntimeException("Product " + line[0] + " no longer exists");
+            }
+            Order order = new Order(user, product, new BigDecimal(line[2]), Integer.valueOf(line[1]),
+                    line[3].isEmpty() ? null : line[3]);
+            order.setIntakeRef(intake.getReference());
+            order.setReservation(Order.ReservationStatus.HELD);
+            order.setReservedUntil(intake.getReservedUntil());
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    // Just enough of each line (product id and quantity) to hand its stock back
+    private static List<Order> stockOnly(OrderIntake intake) {
+        List<Order> orders = new ArrayList<>();
+        for (String[] line : decodeLines(intake.getLines())) {
+            Product product = new Product();
+            product.setPid(Long.valueOf(line[0]));
+            Order order = new Order();
+            order.setProduct(product);
+            order.setQuantity(Integer.valueOf(line[1]));
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    static String encodeLines(List<Order> orders) {
+        return orders.stream()
+                .map(order -> order.getProduct().getPid() + "|" + order.getQuantity() + "|"
+                        + order.getPrice().toPlainString() + "|" + (order.getSize() != null ? order.getSize() : ""))
+                .collect(Collectors.joining("\n"));
+    }
+
+    // pid, quantity, price, size ("" when none)
+    static List<String[]> decodeLines(String lines) {
+        return Arrays.stream(lines.split("\n")).map(line -> line.split("\\|", 4)).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordCommitted(List<Ticket> tickets) {
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    for (Ticket ticket : tickets) {
+                        List<Long> ids = ticket.orders().stream().map(Order::getId).toList();
+                        ops.opsForHash().putAll(statusKey(ticket.reference()),
+                                statusFields(ticket.userId(), OrderIntakeStatus.State.COMMITTED, ids, null));
+                        ops.expire(statusKey(ticket.reference()), STATUS_TTL_HOURS, TimeUnit.HOURS);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // The orders are saved; status reads fall back to MySQL
+            System.err.println("Order intake status update failed: " + e.getMessage());
+        }
+    }
+
+    private void writeStatus(String reference, Long userId, OrderIntakeStatus.State state, List<Long> ids, String error) {
+        stringRedisTemplate.opsForHash().putAll(statusKey(reference), statusFields(userId, state, ids, error));
+        stringRedisTemplate.expire(statusKey(reference), STATUS_TTL_HOURS, TimeUnit.HOURS);
+    }
+
+    private static Map<String, String> statusFields(Long userId, OrderIntakeStatus.State state, List<Long> ids, String error) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("user", String.valueOf(userId));
+        fields.put("state", state.name());
+        fields.put("orders", ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        fields.put("error", error != null ? error : "");
+        return fields;
+    }
+
+    private static List<Long> parseIds(String ids) {
+        if (ids == null || ids.isEmpty()) return List.of();
+        return Arrays.stream(ids.split(",")).map(Long::valueOf).toList();
+    }
+
+    private static String statusKey(String reference) {
+        return STATUS_KEY_PREFIX + reference;
+    }
+
+    // Acknowledged checkouts hold stock and have an emptied cart - save what we can before the
+    // datasource goes; anything left is recovered from its intake row
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            System.err.println("Order intake shutdown left " + queue.size()
+                    + " checkouts unsaved; they will be replayed from order_intake");
+        }
+    }
+}
@@ -1,19 +1,26 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.OrderSummary;
+import com.ecommerce.dto.VendorOrderSummary;
 import com.ecommerce.entity.Cart;
 import com.ecommerce.entity.Order;
-import com.ecommerce.entity.Product;
 import com.ecommerce.entity.User;
 import com.ecommerce.repository.OrderRepository;
-import com.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
 public class OrderService {
     
+    // Open ends of the history date range; both fit a MySQL DATETIME
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
     @Autowired
     private OrderRepository orderRepository;
     
@@ -21,42 +28,86 @@ public class OrderService {
     private RedisCartService cartService;
     
     @Autowired
-    private ProductRepository productRepository;
+    private StockReservationService stockReservationService;
+    
+    @Autowired
+    private UserLookupService userLookupService;
     
     @Transactional
-    public List<Order> placeOrder(User user, String phone, String address) {
-        List<Cart> cartItems = cartService.getUserCart(user);
+    public List<Order> placeOrder(Long userId, String phone, String address) {
+        List<Order> orders = ordersFromCart(userId);
+        
+        // Stock is checked and taken against the live rows, not the product copies in the cart
+        stockReservationService.hold(orders);
+        
+        List<Order> savedOrders = orderRepository.saveAll(orders);
+        cartService.clearCart(userId);
+        return savedOrders;
+    }
+    
+    // One unsaved order per cart line
+    public List<Order> ordersFromCart(Long userId) {
+        List<Cart> cartItems = cartService.getUserCart(userId);
         if (cartItems.isEmpty()) {
             throw new RuntimeException("Cart is empty");
         }
         
-        // Validate stock availability
-        for (Cart cart : cartItems) {
-            Product product = cart.getProduct();
-            if (product.getStock() < cart.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName() + 
-                    ". Available: " + product.getStock() + ", Requested: " + cart.getQuantity());
-            }
-        }
-        
-        List<Order> orders = cartItems.stream()
+        User user = userLookupService.getUser(userId);
+        return cartItems.stream()
                 .map(cart -> {
                     Order order = new Order(user, cart.getProduct(), cart.getPrice(), cart.getQuantity(), cart.getSize());
                     return order;
                 })
                 .toList();
-        
-        List<Order> savedOrders = orderRepository.saveAll(orders);
-        cartService.clearCart(user);
-        return savedOrders;
     }
     
-    public List<Order> getUserOrders(User user) {
-        return orderRepository.findByUser(user);
+    public List<Order> getUserOrders(Long userId) {
+        return orderRepository.findByUserUserid(userId);
+    }
+    
+    public List<Order> getVendorOrders(Long vendorId) {
+        return orderRepository.findByVendorId(vendorId);
     }
     
-    public List<Order> getVendorOrders(User vendor) {
-        return orderRepository.findByVendor(vendor);
+    // from is inclusive, to exclusive; either may be null
+    public CursorPage<OrderSummary> getUserOrderHistory(Long userId, String cursor, int size,
+                                                        Order.OrderStatus status, LocalDateTime from, LocalDateTime to) {
+        OrderCursor before = upperBound(cursor, to);
+        // Fetch one extra row to learn whether another page exists
+        List<OrderSummary> rows = orderRepository.findUserHistory(userId, status, from != null ? from : EARLIEST,
+                before.getOrderDate(), before.getId(), PageRequest.of(0, size + 1));
+        return page(rows, size);
+    }
+    
+    public CursorPage<VendorOrderSummary> getVendorOrderHistory(Long vendorId, String cursor, int size,
+                                                                Order.OrderStatus status, LocalDateTime from, LocalDateTime to) {
+        OrderCursor before = upperBound(cursor, to);
+        List<VendorOrderSummary> rows = orderRepository.findVendorHistory(vendorId, status, from != null ? from : EARLIEST,
+                before.getOrderDate(), before.getId(), PageRequest.of(0, size + 1));
+        return page(rows, size);
+    }
+    
+    // The page starts below the cursor, or below the end of the range when that is earlier.
+    // Id 0 turns the (date, id) bound into a plain date < to.
+    private static OrderCursor upperBound(String cursor, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LATEST;
+        if (cursor == null || cursor.isBlank()) {
+            return new OrderCursor(end, 0L);
+        }
+        OrderCursor after = OrderCursor.decode(cursor);
+        return after.getOrderDate().isBefore(end) ? after : new OrderCursor(end, 0L);
+    }
+    
+    private static <T extends OrderSummary> CursorPage<T> page(List<T> rows, int size) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        
+        String nextCursor = null;
+        if (hasNext) {
+            T last = content.get(content.size() - 1);
+            nextCursor = new OrderCursor(last.getOrderDate(), last.getId()).encode();
+        }
+        return new CursorPage<>(content, nextCursor, hasNext, content.size(), null);
     }
     
     @Transactional
@@ -67,13 +118,13 @@ public class OrderService {
         Order.OrderStatus oldStatus = order.getStatus();
         order.setStatus(status);
         
-        // Reduce stock when order is delivered
-        if (status == Order.OrderStatus.DELIVERED && oldStatus != Order.OrderStatus.DELIVERED) {
-            Product product = order.getProduct();
-            int newStock = product.getStock() - order.getQuantity();
-            if (newStock < 0) newStock = 0;
-            product.setStock(newStock);
-            productRepository.save(product);
+        // Delivery keeps the stock taken at checkout, cancelling gives it back
+        if (status != oldStatus) {
+            switch (status) {
+                case DELIVERED -> stockReservationService.consume(order);
+                case CANCELLED -> stockReservationService.release(order);
+                case PENDING -> stockReservationService.rehold(order);
+            }
         }
         
         return orderRepository.save(order);
@@ -0,0 +1,40 @@
+package com.ecommerce.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Orders placed before orders.vendor_id existed get it copied from their product, a batch at a
+// time so the update never locks the whole table. Orders of vendorless products stay null.
+@Component
+public class OrderVendorBackfill {
+    
+    private static final int BATCH_SIZE = 5000;
+    
+    private static final String BACKFILL_SQL =
+            "UPDATE orders SET vendor_id = (SELECT p.vendor_id FROM product p WHERE p.pid = orders.pid) " +
+            "WHERE vendor_id IS NULL " +
+            "AND EXISTS (SELECT 1 FROM product p WHERE p.pid = orders.pid AND p.vendor_id IS NOT NULL) " +
+            "LIMIT " + BATCH_SIZE;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long start = System.currentTimeMillis();
+        long total = 0;
+        int updated;
+        do {
+            updated = jdbcTemplate.update(BACKFILL_SQL);
+            total += updated;
+        } while (updated == BATCH_SIZE);
+        
+        if (total > 0) {
+            System.out.println("Copied vendor ids onto " + total + " orders in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+}
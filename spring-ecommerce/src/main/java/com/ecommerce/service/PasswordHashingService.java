@@ -0,0 +1,103 @@
+package com.ecommerce.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// BCrypt runs on its own small pool so a login surge can't take every request thread.
+// Once the queue is full callers are rejected immediately instead of piling up.
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${auth.hashing.threads:0}")
+    private int threads;
+
+    @Value("${auth.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${auth.hashing.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+    private Timer encodeTimer;
+    private Timer matchTimer;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        encodeTimer = Timer.builder("auth.hashing.duration").tag("operation", "encode").register(meterRegistry);
+        matchTimer = Timer.builder("auth.hashing.duration").tag("operation", "matches").register(meterRegistry);
+        rejected = Counter.builder("auth.hashing.rejected").register(meterRegistry);
+        Gauge.builder("auth.hashing.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("auth.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public String encode(String rawPassword) {
+        return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return submit(() -> matchTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new RejectedExecutionException("Authentication is busy, please retry shortly");
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new RejectedExecutionException("Authentication is busy, please retry shortly");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Password hashing interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Password hashing failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
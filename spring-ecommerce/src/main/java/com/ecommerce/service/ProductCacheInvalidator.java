@@ -0,0 +1,84 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Evicts only the cache entries that contain a changed product instead of whole caches
+@Service
+public class ProductCacheInvalidator {
+    
+    public static final String ALL_PRODUCTS_KEY = "all";
+    private static final String DEPENDENCY_KEY_PREFIX = "cache:deps:product:";
+    // Outlives the 5 minute products TTL so no live list entry loses its dependency record
+    private static final long DEPENDENCY_TTL_MINUTES = 10;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    // Records, per product, which list entries contain it and at which version
+    public void track(String listKey, Collection<Product> products) {
+        if (products.isEmpty()) return;
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] field = listKey.getBytes(StandardCharsets.UTF_8);
+                for (Product product : products) {
+                    byte[] key = dependencyKey(product.getPid()).getBytes(StandardCharsets.UTF_8);
+                    String version = String.valueOf(product.getVersion() != null ? product.getVersion() : 0L);
+                    connection.hashCommands().hSet(key, field, version.getBytes(StandardCharsets.UTF_8));
+                    connection.keyCommands().expire(key, TimeUnit.MINUTES.toSeconds(DEPENDENCY_TTL_MINUTES));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // Untracked entries still expire on the products TTL
+            System.err.println("Cache dependency tracking failed: " + e.getMessage());
+        }
+    }
+    
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Cache productCache = cacheManager.getCache("product");
+        Cache productsCache = cacheManager.getCache("products");
+        
+        if (event.getChange() == ProductChangedEvent.Change.CREATED) {
+            // A new product shifts every page and changes every total
+            productsCache.clear();
+            cacheManager.getCache("productCount").clear();
+            return;
+        }
+        
+        productCache.evict(event.getProductId());
+        productsCache.evict(ALL_PRODUCTS_KEY);
+        
+        String dependencyKey = dependencyKey(event.getProductId());
+        Map<Object, Object> dependents = stringRedisTemplate.opsForHash().entries(dependencyKey);
+        long changedVersion = event.getVersion() != null ? event.getVersion() : Long.MAX_VALUE;
+        boolean ratingChanged = event.getChange() == ProductChangedEvent.Change.RATING;
+        for (Map.Entry<Object, Object> dependent : dependents.entrySet()) {
+            long cachedVersion = Long.parseLong((String) dependent.getValue());
+            // Entries built at or after the changed version already reflect it (ratings don't bump the version)
+            if (ratingChanged || cachedVersion < changedVersion) {
+                productsCache.evict(dependent.getKey());
+                stringRedisTemplate.opsForHash().delete(dependencyKey, dependent.getKey());
+            }
+        }
+    }
+    
+    private static String dependencyKey(Long pid) {
+        return DEPENDENCY_KEY_PREFIX + pid;
+    }
+}
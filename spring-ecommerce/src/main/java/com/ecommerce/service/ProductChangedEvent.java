@@ -0,0 +1,33 @@
+package com.ecommerce.service;
+
+public class ProductChangedEvent {
+    
+    public enum Change {
+        CREATED, UPDATED, RATING
+    }
+    
+    private final Long productId;
+    private final Long version;
+    private final Change change;
+    
+    public ProductChangedEvent(Long productId, Long version, Change change) {
+        this.productId = productId;
+        this.version = version;
+        this.change = change;
+    }
+    
+    public Long getProductId() { return productId; }
+    public Long getVersion() { return version; }
+    public Change getChange() { return change; }
+    
+    // Wire format for the catalog:changed channel: pid:version:change
+    public String encode() {
+        return productId + ":" + (version != null ? version : "") + ":" + change.name();
+    }
+    
+    public static ProductChangedEvent decode(String message) {
+        String[] parts = message.split(":", -1);
+        Long version = parts[1].isEmpty() ? null : Long.valueOf(parts[1]);
+        return new ProductChangedEvent(Long.valueOf(parts[0]), version, Change.valueOf(parts[2]));
+    }
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Opaque browse position: the sort column, the last row's sort value and its pid
+public class ProductCursor {
+    
+    private static final String SEPARATOR = "|";
+    
+    private final String sortBy;
+    private final Long pid;
+    private final String sortValue;
+    
+    public ProductCursor(String sortBy, Long pid, String sortValue) {
+        this.sortBy = sortBy;
+        this.pid = pid;
+        this.sortValue = sortValue;
+    }
+    
+    public String getSortBy() { return sortBy; }
+    public Long getPid() { return pid; }
+    public String getSortValue() { return sortValue; }
+    
+    public String encode() {
+        String raw = sortBy + SEPARATOR + pid + SEPARATOR + (sortValue != null ? sortValue : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static ProductCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            return new ProductCursor(parts[0], Long.valueOf(parts[1]), parts.length > 2 ? parts[2] : "");
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.FacetQuery;
+import com.ecommerce.dto.FacetResult;
+import com.ecommerce.entity.Product;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class ProductFacetIndex {
+    
+    public static final String PRICE = "price";
+    public static final String SIZE = "size";
+    public static final String VENDOR = "vendor";
+    public static final String RATING = "rating";
+    public static final String IN_STOCK = "inStock";
+    
+    private static final int MAX_RATING = 5;
+    
+    // Upper edges of the price bands, e.g. 500,1000 -> "0-500", "500-1000", "1000+"
+    @Value("${catalog.facets.price-bands:500,1000,2500,5000}")
+    private List<BigDecimal> priceBandEdges = List.of(
+            new BigDecimal(500), new BigDecimal(1000), new BigDecimal(2500), new BigDecimal(5000));
+    
+    // Bitmaps are over dense ordinals so they stay compact whatever the pid range
+    private final Map<Long, Integer> ordinalByPid = new HashMap<>();
+    private final List<Long> pidByOrdinal = new ArrayList<>();
+    private final Map<Integer, List<String[]>> valuesByOrdinal = new HashMap<>();
+    private final Map<String, Map<String, RoaringBitmap>> bitmaps = new HashMap<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    public void index(Product product) {
+        if (product.getPid() == null) return;
+        
+        List<String[]> values = facetValues(product);
+        lock.writeLock().lock();
+        try {
+            int ordinal = ordinalByPid.computeIfAbsent(product.getPid(), pid -> {
+                pidByOrdinal.add(pid);
+                return pidByOrdinal.size() - 1;
+            });
+            removeValues(ordinal);
+            for (String[] value : values) {
+                bitmaps.computeIfAbsent(value[0], f -> new HashMap<>())
+                        .computeIfAbsent(value[1], v -> new RoaringBitmap())
+                        .add(ordinal);
+            }
+            valuesByOrdinal.put(ordinal, values);
+            live.add(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void indexAll(Collection<Product> products) {
+        products.forEach(this::index);
+    }
+    
+    public void remove(Long pid) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalByPid.get(pid);
+            if (ordinal == null) return;
+            removeValues(ordinal);
+            live.remove(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ordinalByPid.clear();
+            pidByOrdinal.clear();
+            valuesByOrdinal.clear();
+            bitmaps.clear();
+            live.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public FacetResult<Long> search(FacetQuery query, int page, int size) {
+        lock.readLock().lock();
+        try {
+            // OR within a facet, AND across facets
+            Map<String, RoaringBitmap> selections = new LinkedHashMap<>();
+            putSelection(selections, PRICE, query.getPriceBands());
+            putSelection(selections, SIZE, query.getSizes() == null ? null
+                    : query.getSizes().stream().map(ProductFacetIndex::normalizeSize).toList());
+            putSelection(selections, VENDOR, query.getVendors() == null ? null
+                    : query.getVendors().stream().map(String::valueOf).toList());
+            if (query.getMinRating() != null) {
+                selections.put(RATING, union(RATING, ratingBucketsFrom(query.getMinRating())));
+            }
+            if (query.getInStock() != null) {
+                selections.put(IN_STOCK, union(IN_STOCK, List.of(String.valueOf(query.getInStock()))));
+            }
+            
+            RoaringBitmap result = live.clone();
+            for (RoaringBitmap selection : selections.values()) {
+                result.and(selection);
+            }
+            
+            // Each facet is counted against the other facets' filters so unselected values stay visible
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            for (String facet : List.of(PRICE, SIZE, VENDOR, RATING, IN_STOCK)) {
+                RoaringBitmap base = live.clone();
+                selections.forEach((other, selection) -> {
+                    if (!other.equals(facet)) base.and(selection);
+                });
+                facets.put(facet, counts(facet, base));
+            }
+            
+            List<Long> pids = new ArrayList<>(size);
+            IntIterator ordinals = result.getIntIterator();
+            int skip = page * size;
+            while (ordinals.hasNext() && pids.size() < size) {
+                int ordinal = ordinals.next();
+                if (skip-- > 0) continue;
+                pids.add(pidByOrdinal.get(ordinal));
+            }
+            return new FacetResult<>(pids, result.getCardinality(), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private Map<String, Integer> counts(String facet, RoaringBitmap base) {
+        Map<String, RoaringBitmap> values = bitmaps.getOrDefault(facet, Map.of());
+        if (RATING.equals(facet)) {
+            // Rating is offered as "N and up", so counts are cumulative over the buckets
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            int cumulative = 0;
+            for (int rating = MAX_RATING; rating >= 1; rating--) {
+                RoaringBitmap bucket = values.get(String.valueOf(rating));
+                cumulative += bucket == null ? 0 : RoaringBitmap.andCardinality(base, bucket);
+                counts.put(rating + "+", cumulative);
+            }
+            return counts;
+        }
+        
+        Map<String, Integer> counts = new TreeMap<>();
+        values.forEach((value, bitmap) -> {
+            int count = RoaringBitmap.andCardinality(base, bitmap);
+            if (count > 0) counts.put(value, count);
+        });
+        return counts;
+    }
+    
+    private void putSelection(Map<String, RoaringBitmap> selections, String facet, List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            selections.put(facet, union(facet, values));
+        }
+    }
+    
+    private RoaringBitmap union(String facet, List<String> values) {
+        Map<String, RoaringBitmap> facetBitmaps = bitmaps.getOrDefault(facet, Map.of());
+        RoaringBitmap union = new RoaringBitmap();
+        for (String value : values) {
+            RoaringBitmap bitmap = facetBitmaps.get(value);
+            if (bitmap != null) union.or(bitmap);
+        }
+        return union;
+    }
+    
+    private void removeValues(int ordinal) {
+        List<String[]> previous = valuesByOrdinal.remove(ordinal);
+        if (previous == null) return;
+        for (String[] value : previous) {
+            RoaringBitmap bitmap = bitmaps.getOrDefault(value[0], Map.of()).get(value[1]);
+            if (bitmap != null) bitmap.remove(ordinal);
+        }
+    }
+    
+    private List<String[]> facetValues(Product product) {
+        List<String[]> values = new ArrayList<>();
+        if (product.getPrice() != null) {
+            values.add(new String[]{PRICE, priceBand(product.getPrice())});
+        }
+        if (product.getSizes() != null) {
+            for (String size : product.getSizes().split(",")) {
+                if (!size.isBlank()) values.add(new String[]{SIZE, normalizeSize(size)});
+            }
+        }
+        if (product.getVendor() != null && product.getVendor().getUserid() != null) {
+            values.add(new String[]{VENDOR, String.valueOf(product.getVendor().getUserid())});
+        }
+        double rating = product.getAverageRating() != null ? product.getAverageRating() : 0.0;
+        values.add(new String[]{RATING, String.valueOf((int) Math.floor(rating))});
+        int stock = product.getStock() != null ? product.getStock() : 0;
+        values.add(new String[]{IN_STOCK, String.valueOf(stock > 0)});
+        return values;
+    }
+    
+    private String priceBand(BigDecimal price) {
+        BigDecimal lower = BigDecimal.ZERO;
+        for (BigDecimal edge : priceBandEdges) {
+            if (price.compareTo(edge) < 0) {
+                return lower.toPlainString() + "-" + edge.toPlainString();
+            }
+            lower = edge;
+        }
+        return lower.toPlainString() + "+";
+    }
+    
+    private static List<String> ratingBucketsFrom(int minRating) {
+        List<String> buckets = new ArrayList<>();
+        for (int rating = Math.max(0, minRating); rating <= MAX_RATING; rating++) {
+            buckets.add(String.valueOf(rating));
+        }
+        return buckets;
+    }
+    
+    private static String normalizeSize(String size) {
+        return size.trim().toUpperCase(Locale.ROOT);
+    }
+}
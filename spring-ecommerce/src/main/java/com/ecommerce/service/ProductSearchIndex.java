@@ -0,0 +1,173 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ProductSearchIndex {
+    
+    // BM25 tuning; matches in the name count three times as much as in the detail
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 3;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final double PREFIX_PENALTY = 0.5;
+    
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is",
+            "it", "of", "on", "or", "the", "this", "to", "with");
+    
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, IndexedProduct> documents = new ConcurrentHashMap<>();
+    private final AtomicLong totalLength = new AtomicLong();
+    
+    public void index(Product product) {
+        if (product.getPid() == null) return;
+        
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : tokenize(product.getName())) {
+            frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(product.getDetail())) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+        
+        // Rewrite the product's postings under its own lock so concurrent updates don't interleave
+        documents.compute(product.getPid(), (pid, previous) -> {
+            if (previous != null) {
+                removePostings(pid, previous);
+            }
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new ConcurrentHashMap<>()).put(pid, frequency));
+            totalLength.addAndGet(length);
+            return new IndexedProduct(Set.copyOf(frequencies.keySet()), length);
+        });
+    }
+    
+    public void indexAll(Collection<Product> products) {
+        products.parallelStream().forEach(this::index);
+    }
+    
+    public void remove(Long pid) {
+        documents.computeIfPresent(pid, (id, previous) -> {
+            removePostings(id, previous);
+            return null;
+        });
+    }
+    
+    public List<Long> search(String query, int limit) {
+        List<String> terms = tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty() || documents.isEmpty()) return List.of();
+        
+        int documentCount = documents.size();
+        double averageLength = Math.max(1.0, (double) totalLength.get() / documentCount);
+        Map<Long, Double> scores = new HashMap<>();
+        
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            scoreTerm(term, 1.0, documentCount, averageLength, scores);
+            
+            // Treat the last word as a prefix so results show up while the user is still typing
+            if (i == terms.size() - 1) {
+                ConcurrentNavigableMap<String, Map<Long, Integer>> expansions =
+                        postings.subMap(term, false, term + Character.MAX_VALUE, false);
+                int expanded = 0;
+                for (String candidate : expansions.keySet()) {
+                    if (expanded++ >= MAX_PREFIX_EXPANSIONS) break;
+                    scoreTerm(candidate, PREFIX_PENALTY, documentCount, averageLength, scores);
+                }
+            }
+        }
+        
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) top.poll();
+        }
+        
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(top);
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        return ranked.stream().map(Map.Entry::getKey).toList();
+    }
+    
+    public int size() {
+        return documents.size();
+    }
+    
+    public void clear() {
+        postings.clear();
+        documents.clear();
+        totalLength.set(0);
+    }
+    
+    private void scoreTerm(String term, double boost, int documentCount, double averageLength, Map<Long, Double> scores) {
+        Map<Long, Integer> matches = postings.get(term);
+        if (matches == null || matches.isEmpty()) return;
+        
+        int documentFrequency = matches.size();
+        double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        for (Map.Entry<Long, Integer> match : matches.entrySet()) {
+            IndexedProduct document = documents.get(match.getKey());
+            if (document == null) continue;
+            double frequency = match.getValue();
+            double norm = K1 * (1 - B + B * document.length / averageLength);
+            double score = boost * idf * frequency * (K1 + 1) / (frequency + norm);
+            scores.merge(match.getKey(), score, Double::sum);
+        }
+    }
+    
+    private void removePostings(Long pid, IndexedProduct previous) {
+        for (String term : previous.terms) {
+            postings.computeIfPresent(term, (t, matches) -> {
+                matches.remove(pid);
+                return matches.isEmpty() ? null : matches;
+            });
+        }
+        totalLength.addAndGet(-previous.length);
+    }
+    
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        
+        List<String> tokens = new ArrayList<>();
+        for (String raw : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (raw.length() < 2 || STOP_WORDS.contains(raw)) continue;
+            tokens.add(stem(raw));
+        }
+        return tokens;
+    }
+    
+    // Light plural folding so "earrings" finds "earring"
+    private static String stem(String token) {
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+    
+    private static final class IndexedProduct {
+        private final Set<String> terms;
+        private final int length;
+        
+        private IndexedProduct(Set<String> terms, int length) {
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+}
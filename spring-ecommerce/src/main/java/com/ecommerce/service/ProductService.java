@@ -1,23 +1,32 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.CachedProductPage;
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.FacetQuery;
+import com.ecommerce.dto.FacetResult;
 import com.ecommerce.entity.Product;
-import com.ecommerce.entity.User;
 import com.ecommerce.repository.ProductRepository;
-import com.ecommerce.repository.ReviewRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
@@ -26,53 +35,177 @@ public class ProductService {
     private ProductRepository productRepository;
     
     @Autowired
-    private ReviewRepository reviewRepository;
+    private RatingAggregationService ratingAggregationService;
     
-    private final String uploadDir = "src/main/resources/static/images/";
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
+    @Autowired
+    private ImageStorageService imageStorageService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private ProductCacheInvalidator productCacheInvalidator;
+    
+    @Autowired
+    private UserLookupService userLookupService;
     
-    @Cacheable("products")
+    @Cacheable(value = "products", key = "'" + ProductCacheInvalidator.ALL_PRODUCTS_KEY + "'", sync = true)
     public List<Product> getAllProducts() {
         List<Product> products = productRepository.findAll();
-        products.forEach(this::populateRatingData);
+        ratingAggregationService.populateRatingData(products);
         return products;
     }
     
     public Page<Product> getAllProducts(Pageable pageable) {
-        Page<Product> products = productRepository.findAll(pageable);
-        products.forEach(this::populateRatingData);
+        String key = "page:" + pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort();
+        Cache cache = cacheManager.getCache("products");
+        // Loader runs once per key even when many requests miss together
+        CachedProductPage page = cache.get(key, () -> {
+            Page<Product> products = productRepository.findAll(pageable);
+            ratingAggregationService.populateRatingData(products.getContent());
+            productCacheInvalidator.track(key, products.getContent());
+            return new CachedProductPage(products.getContent(), products.getTotalElements());
+        });
+        return page.toPage(pageable);
+    }
+    
+    public CursorPage<Product> browseProducts(String cursor, int size, String sortBy) {
+        ProductCursor after = cursor != null && !cursor.isBlank() ? ProductCursor.decode(cursor) : null;
+        if (after != null && !after.getSortBy().equals(sortBy)) {
+            throw new RuntimeException("Cursor does not match sort order");
+        }
+        
+        // Fetch one extra row to learn whether another page exists
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Product> rows = switch (sortBy) {
+            case "pid" -> after == null
+                    ? productRepository.findFirstByPid(limit)
+                    : productRepository.findNextByPid(after.getPid(), limit);
+            case "price" -> after == null
+                    ? productRepository.findFirstByPrice(limit)
+                    : productRepository.findNextByPrice(new BigDecimal(after.getSortValue()), after.getPid(), limit);
+            case "name" -> after == null
+                    ? productRepository.findFirstByName(limit)
+                    : productRepository.findNextByName(after.getSortValue(), after.getPid(), limit);
+            default -> throw new RuntimeException("Unsupported sort field for browsing: " + sortBy);
+        };
+        
+        boolean hasNext = rows.size() > size;
+        List<Product> products = hasNext ? rows.subList(0, size) : rows;
+        ratingAggregationService.populateRatingData(products);
+        
+        String nextCursor = null;
+        if (hasNext) {
+            Product last = products.get(products.size() - 1);
+            nextCursor = new ProductCursor(sortBy, last.getPid(), sortValue(last, sortBy)).encode();
+        }
+        return new CursorPage<>(products, nextCursor, hasNext, products.size(), null);
+    }
+    
+    public List<Product> searchProducts(String query, int limit) {
+        List<Long> rankedIds = productSearchIndex.search(query, limit);
+        List<Product> products = loadInOrder(rankedIds);
+        ratingAggregationService.populateRatingData(products);
         return products;
     }
     
-    public List<Product> getProductsByVendor(User vendor) {
-        return productRepository.findByVendor(vendor);
+    private List<Product> loadInOrder(List<Long> pids) {
+        if (pids.isEmpty()) return List.of();
+        
+        Map<Long, Product> productsById = productRepository.findAllById(pids).stream()
+                .collect(Collectors.toMap(Product::getPid, Function.identity()));
+        return pids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    public FacetResult<Product> filterProducts(FacetQuery query, int page, int size) {
+        FacetResult<Long> match = productFacetIndex.search(query, page, size);
+        List<Product> products = loadInOrder(match.getContent());
+        ratingAggregationService.populateRatingData(products);
+        return new FacetResult<>(products, match.getTotalElements(), match.getFacets());
     }
     
-    @Cacheable(value = "product", key = "#id")
+    @Cacheable(value = "productCount", key = "'all'")
+    public long getProductCount() {
+        return productRepository.count();
+    }
+    
+    private String sortValue(Product product, String sortBy) {
+        return switch (sortBy) {
+            case "price" -> product.getPrice().toPlainString();
+            case "name" -> product.getName();
+            default -> String.valueOf(product.getPid());
+        };
+    }
+    
+    public List<Product> getProductsByVendor(Long vendorId) {
+        List<Product> products = productRepository.findByVendorUserid(vendorId);
+        ratingAggregationService.populateRatingData(products);
+        return products;
+    }
+    
+    @Cacheable(value = "product", key = "#id", sync = true)
     public Product getProductById(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
-        populateRatingData(product);
+        ratingAggregationService.populateRatingData(product);
         return product;
     }
     
-    @CacheEvict(value = "products", allEntries = true)
+    // Batch read through the product cache: hits come from the near cache, misses load in one query
+    public Map<Long, Product> getProductsByIds(Collection<Long> ids) {
+        Cache cache = cacheManager.getCache("product");
+        Map<Long, Product> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Product cached = cache != null ? cache.get(id, Product.class) : null;
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+        
+        if (!misses.isEmpty()) {
+            List<Product> loaded = productRepository.findAllById(misses);
+            ratingAggregationService.populateRatingData(loaded);
+            for (Product product : loaded) {
+                found.put(product.getPid(), product);
+                if (cache != null) cache.put(product.getPid(), product);
+            }
+        }
+        return found;
+    }
+    
     public Product createProduct(String name, BigDecimal price, String detail, 
-                               MultipartFile image, User vendor, Integer stock, String sizes) throws IOException {
-        String imagePath = saveImage(image);
+                               MultipartFile image, Long vendorId, Integer stock, String sizes) throws IOException {
+        String imagePath = imageStorageService.store(image);
         
         Product product = new Product();
         product.setName(name);
         product.setPrice(price);
         product.setDetail(detail);
         product.setImgpath(imagePath);
-        product.setVendor(vendor);
+        product.setVendor(userLookupService.getUser(vendorId));
         product.setStock(stock != null ? stock : 0);
         product.setSizes(sizes);
         
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        reindex(saved, ProductChangedEvent.Change.CREATED);
+        return saved;
     }
     
-    @CacheEvict(value = {"products", "product"}, allEntries = true)
     public Product updateProduct(Long id, String name, BigDecimal price, 
                                String detail, MultipartFile image, Integer stock, String sizes) throws IOException {
         Product product = productRepository.findById(id)
@@ -81,29 +214,42 @@ public class ProductService {
         product.setName(name);
         product.setPrice(price);
         product.setDetail(detail);
-        if (stock != null && stock >= 0) product.setStock(stock);
+        if (stock != null && stock >= 0) {
+            // During a flash sale the row only mirrors the Redis counters
+            if (product.getFlashShards() != null && !stock.equals(product.getStock())) {
+                throw new RuntimeException("Stock can't be changed while the product is in a flash sale");
+            }
+            product.setStock(stock);
+        }
         if (sizes != null) product.setSizes(sizes);
         
         if (image != null && !image.isEmpty()) {
-            String imagePath = saveImage(image);
+            String imagePath = imageStorageService.store(image);
             product.setImgpath(imagePath);
         }
         
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        reindex(saved, ProductChangedEvent.Change.UPDATED);
+        return saved;
     }
     
-    private String saveImage(MultipartFile image) throws IOException {
-        String fileName = UUID.randomUUID().toString() + "_" + image.getOriginalFilename();
-        Path path = Paths.get(uploadDir + fileName);
-        Files.createDirectories(path.getParent());
-        Files.write(path, image.getBytes());
-        return "/images/" + fileName;
+    public void reindex(Product product, ProductChangedEvent.Change change) {
+        ratingAggregationService.populateRatingData(product);
+        productSearchIndex.index(product);
+        productFacetIndex.index(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getPid(), product.getVersion(), change));
     }
     
-    private void populateRatingData(Product product) {
-        Double avgRating = reviewRepository.getAverageRatingByProductId(product.getPid());
-        Long reviewCount = reviewRepository.getReviewCountByProductId(product.getPid());
-        product.setAverageRating(avgRating != null ? avgRating : 0.0);
-        product.setReviewCount(reviewCount != null ? reviewCount : 0L);
+    // A change made on another node: reload the row so this node's in-memory indexes catch up
+    public void applyRemoteChange(Long pid) {
+        Product product = productRepository.findById(pid).orElse(null);
+        if (product == null) {
+            productSearchIndex.remove(pid);
+            productFacetIndex.remove(pid);
+            return;
+        }
+        ratingAggregationService.populateRatingData(product);
+        productSearchIndex.index(product);
+        productFacetIndex.index(product);
     }
 }
\ No newline at end of file
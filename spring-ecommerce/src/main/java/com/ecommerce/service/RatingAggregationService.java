@@ -0,0 +1,53 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.ProductRatingSummary;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ReviewRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+@Service
+public class RatingAggregationService {
+    
+    // Keeps the IN list of a single grouped query at a size MySQL plans well
+    private static final int BATCH_SIZE = 500;
+    
+    @Autowired
+    private ReviewRepository reviewRepository;
+    
+    public void populateRatingData(Product product) {
+        populateRatingData(List.of(product));
+    }
+    
+    public void populateRatingData(Collection<Product> products) {
+        List<Long> pids = products.stream()
+                .map(Product::getPid)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (pids.isEmpty()) return;
+        
+        Map<Long, ProductRatingSummary> summaries = new HashMap<>();
+        for (int from = 0; from < pids.size(); from += BATCH_SIZE) {
+            List<Long> batch = pids.subList(from, Math.min(from + BATCH_SIZE, pids.size()));
+            for (ProductRatingSummary summary : reviewRepository.getRatingSummariesByProductIds(batch)) {
+                summaries.put(summary.getPid(), summary);
+            }
+        }
+        
+        for (Product product : products) {
+            ProductRatingSummary summary = summaries.get(product.getPid());
+            Double avgRating = summary != null ? summary.getAverageRating() : null;
+            Long reviewCount = summary != null ? summary.getReviewCount() : null;
+            product.setAverageRating(avgRating != null ? avgRating : 0.0);
+            product.setReviewCount(reviewCount != null ? reviewCount : 0L);
+        }
+    }
+}
@@ -1,27 +1,34 @@
 package com.ecommerce.service;
 
+import com.ecommerce.dto.BulkCartRequest;
 import com.ecommerce.entity.Cart;
 import com.ecommerce.entity.Product;
 import com.ecommerce.entity.User;
 import com.ecommerce.repository.CartRepository;
 import com.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.HashOperations;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class RedisCartService {
     
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
     
     @Autowired
     private CartRepository cartRepository;
@@ -29,34 +36,77 @@ public class RedisCartService {
     @Autowired
     private ProductRepository productRepository;
     
-    private static final String CART_KEY_PREFIX = "cart:";
-    private static final long CART_TTL_HOURS = 24;
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserLookupService userLookupService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Value("${cart.bulk.max-items:100}")
+    private int maxBulkItems;
+    
+    // With write-behind on, Redis is the live cart and every mutation is an atomic script;
+    // otherwise MySQL is the record and the Redis copy is evicted after each change
+    @Autowired
+    private CartWriteBehindService writeBehind;
     
     private String getCartKey(Long userId) {
-        return CART_KEY_PREFIX + userId;
+        return CartWriteBehindService.CART_KEY_PREFIX + userId;
     }
     
-    public List<Cart> getUserCart(User user) {
-        String cartKey = getCartKey(user.getUserid());
-        HashOperations<String, String, Object> hashOps = redisTemplate.opsForHash();
-        
-        Map<String, Object> cartItems = hashOps.entries(cartKey);
+    private HashOperations<String, String, String> lines() {
+        return stringRedisTemplate.opsForHash();
+    }
+    
+    public List<Cart> getUserCart(Long userId) {
+        Map<String, String> cartItems = lines().entries(getCartKey(userId));
         
         if (cartItems.isEmpty()) {
-            List<Cart> dbCart = cartRepository.findByUser(user);
-            syncToRedis(user.getUserid(), dbCart);
-            return dbCart;
+            if (writeBehind.isEnabled() && writeBehind.isEmptied(userId)) {
+                return new ArrayList<>();
+            }
+            return syncToRedis(userId, cartRepository.findByUserUserid(userId));
         }
         
-        List<Cart> carts = new ArrayList<>();
-        for (Map.Entry<String, Object> entry : cartItems.entrySet()) {
-            Cart cart = (Cart) entry.getValue();
-            carts.add(cart);
+        List<CartLine> cartLines = new ArrayList<>(cartItems.size());
+        for (Map.Entry<String, String> entry : cartItems.entrySet()) {
+            cartLines.add(CartLine.decode(entry.getKey(), entry.getValue()));
+        }
+        return hydrate(cartLines);
+    }
+    
+    // One batch lookup through the product cache for every line in the cart
+    private List<Cart> hydrate(List<CartLine> cartLines) {
+        Map<Long, Product> products = productService.getProductsByIds(
+                cartLines.stream().map(CartLine::pid).toList());
+        
+        cartLines.sort(Comparator.comparingLong(CartLine::addedAt).thenComparing(CartLine::cartId));
+        List<Cart> carts = new ArrayList<>(cartLines.size());
+        for (CartLine line : cartLines) {
+            Product product = products.get(line.pid());
+            if (product == null) continue;  // product deleted since it was added
+            carts.add(toCart(line, product));
         }
         return carts;
     }
     
-    public Cart addToCart(User user, Long productId, Integer quantity, String size) {
+    private Cart toCart(CartLine line, Product product) {
+        Cart cart = new Cart();
+        cart.setId(line.cartId());
+        cart.setProduct(product);
+        cart.setPrice(line.price());
+        cart.setQuantity(line.quantity());
+        cart.setSize(line.size());
+        cart.setAddedAt(line.addedAtTime());
+        return cart;
+    }
+    
+    // Adding a (product, size) that is already in the cart raises that line's quantity
+    public Cart addToCart(Long userId, Long productId, Integer quantity, String size) {
+        checkSize(size);
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         
@@ -65,32 +115,173 @@ public class RedisCartService {
         }
         
         int requestedQty = quantity != null ? quantity : 1;
+        if (requestedQty < 1) {
+            throw new RuntimeException("Quantity must be at least 1");
+        }
         if (product.getStock() < requestedQty) {
             throw new RuntimeException("Insufficient stock. Available: " + product.getStock());
         }
         
-        Cart newCart = new Cart(user, product, product.getPrice());
-        newCart.setQuantity(requestedQty);
-        newCart.setSize(size);
-        Cart savedCart = cartRepository.save(newCart);
+        if (writeBehind.isEnabled()) {
+            loadIfAbsent(userId);
+            CartLine line = writeBehind.addOrMerge(userId, productId, size, requestedQty,
+                    product.getPrice(), product.getStock());
+            return toCart(line, product);
+        }
         
-        String cartKey = getCartKey(user.getUserid());
-        HashOperations<String, String, Object> hashOps = redisTemplate.opsForHash();
-        hashOps.put(cartKey, String.valueOf(savedCart.getId()), savedCart);
-        redisTemplate.expire(cartKey, CART_TTL_HOURS, TimeUnit.HOURS);
+        Optional<Cart> existing = cartRepository.findFirstByUserUseridAndProductPidAndSize(userId, productId, size);
+        Cart savedCart;
+        if (existing.isPresent()) {
+            if (cartRepository.addQuantityWithinLimit(existing.get().getId(), requestedQty, product.getStock()) == 0) {
+                throw new RuntimeException("Insufficient stock. Available: " + product.getStock());
+            }
+            savedCart = cartRepository.findById(existing.get().getId())
+                    .orElseThrow(() -> new RuntimeException("Cart item not found"));
+        } else {
+            User user = userLookupService.getUser(userId);
+            Cart newCart = new Cart(user, product, product.getPrice());
+            newCart.setQuantity(requestedQty);
+            newCart.setSize(size);
+            savedCart = cartRepository.save(newCart);
+        }
         
+        evict(userId);
         return savedCart;
     }
     
-    public Cart updateCart(Long cartId, Integer quantity, String size) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
+    // Reorder / "add all from wishlist": one product query, one validation pass over every line,
+    // then a single write. Nothing is added unless every line fits.
+    public List<Cart> addAllToCart(Long userId, List<BulkCartRequest.Item> items) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("No items to add");
+        }
+        if (items.size() > maxBulkItems) {
+            throw new RuntimeException("Too many items. Maximum: " + maxBulkItems);
+        }
         
-        if (quantity != null) {
-            Product product = cart.getProduct();
-            if (product.getStock() < quantity) {
-                throw new RuntimeException("Insufficient stock. Available: " + product.getStock());
+        // The same (product, size) listed twice becomes one line
+        Map<String, CartLine> requested = new LinkedHashMap<>();
+        for (BulkCartRequest.Item item : items) {
+            int qty = item.getQuantity() != null ? item.getQuantity() : 1;
+            if (item.getProductId() == null || qty < 1) {
+                throw new RuntimeException("Each item needs a product and a quantity of at least 1");
+            }
+            checkSize(item.getSize());
+            CartLine line = new CartLine(null, item.getProductId(), qty, null, 0, item.getSize());
+            requested.merge(line.field(), line, (a, b) -> a.withQuantity(a.quantity() + b.quantity()));
+        }
+        
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(
+                requested.values().stream().map(CartLine::pid).distinct().toList())) {
+            products.put(product.getPid(), product);
+        }
+        
+        long now = System.currentTimeMillis();
+        List<String> errors = new ArrayList<>();
+        List<CartLine> additions = new ArrayList<>(requested.size());
+        Map<Long, Integer> ceilings = new HashMap<>();
+        for (CartLine line : requested.values()) {
+            Product product = products.get(line.pid());
+            if (product == null) {
+                errors.add("Product " + line.pid() + " not found");
+            } else if (product.getStock() == 0) {
+                errors.add(product.getName() + " is out of stock");
+            } else if (product.getStock() < line.quantity()) {
+                errors.add("Insufficient stock for " + product.getName() + ". Available: " + product.getStock());
+            } else {
+                additions.add(new CartLine(null, line.pid(), line.quantity(), product.getPrice(), now, line.size()));
+                ceilings.put(line.pid(), product.getStock());
             }
+        }
+        if (!errors.isEmpty()) {
+            throw new RuntimeException(String.join("; ", errors));
+        }
+        
+        if (writeBehind.isEnabled()) {
+            loadIfAbsent(userId);
+            List<Cart> carts = new ArrayList<>(additions.size());
+            for (CartLine line : writeBehind.addAllOrMerge(userId, additions, ceilings)) {
+                carts.add(toCart(line, products.get(line.pid())));
+            }
+            return carts;
+        }
+        
+        List<Cart> carts = transactionTemplate.execute(status -> addAllToDatabase(userId, additions, products));
+        evict(userId);
+        return carts;
+    }
+    
+    private List<Cart> addAllToDatabase(Long userId, List<CartLine> additions, Map<Long, Product> products) {
+        Map<String, Cart> existing = new HashMap<>();
+        for (Cart cart : cartRepository.findByUserUserid(userId)) {
+            existing.putIfAbsent(CartLine.field(cart.getProduct().getPid(), cart.getSize()), cart);
+        }
+        
+        // Conditional increments go first: they clear the persistence context, which would
+        // otherwise drop inserts not yet flushed
+        User user = userLookupService.getUser(userId);
+        List<Cart> carts = new ArrayList<>(additions.size());
+        List<Cart> inserts = new ArrayList<>();
+        for (CartLine line : additions) {
+            Product product = products.get(line.pid());
+            Cart cart = existing.get(line.field());
+            if (cart != null) {
+                if (cartRepository.addQuantityWithinLimit(cart.getId(), line.quantity(), product.getStock()) == 0) {
+                    throw new RuntimeException("Insufficient stock for " + product.getName()
+                            + ". Available: " + product.getStock());
+                }
+                cart.setQuantity(cart.getQuantity() + line.quantity());
+            } else {
+                cart = new Cart(user, product, product.getPrice());
+                cart.setQuantity(line.quantity());
+                cart.setSize(line.size());
+                inserts.add(cart);
+            }
+            carts.add(cart);
+        }
+        cartRepository.saveAll(inserts);
+        return carts;
+    }
+    
+    public Cart updateCart(Long userId, Long cartId, Integer quantity, String size) {
+        if (quantity != null && quantity < 1) {
+            throw new RuntimeException("Quantity must be at least 1");
+        }
+        checkSize(size);
+        
+        if (writeBehind.isEnabled()) {
+            CartLine line = getLine(userId, cartId);
+            Product product = productService.getProductById(line.pid());
+            CartLine updated = writeBehind.updateLine(userId, line, quantity, false, size, product.getStock());
+            return toCart(updated, product);
+        }
+        
+        Cart cart = getOwnedCart(userId, cartId);
+        Product product = cart.getProduct();
+        if (quantity != null && product.getStock() < quantity) {
+            throw new RuntimeException("Insufficient stock. Available: " + product.getStock());
+        }
+        
+        // Moving to a size that already has a line merges into it, as adding that size would
+        if (size != null && !size.equals(cart.getSize())) {
+            Optional<Cart> target = cartRepository.findFirstByUserUseridAndProductPidAndSize(userId, product.getPid(), size);
+            if (target.isPresent()) {
+                int moved = quantity != null ? quantity : cart.getQuantity();
+                Cart merged = transactionTemplate.execute(status -> {
+                    if (cartRepository.addQuantityWithinLimit(target.get().getId(), moved, product.getStock()) == 0) {
+                        throw new RuntimeException("Insufficient stock. Available: " + product.getStock());
+                    }
+                    cartRepository.deleteById(cartId);
+                    return cartRepository.findById(target.get().getId())
+                            .orElseThrow(() -> new RuntimeException("Cart item not found"));
+                });
+                evict(userId);
+                return merged;
+            }
+        }
+        
+        if (quantity != null) {
             cart.setQuantity(quantity);
         }
         if (size != null) {
@@ -98,56 +289,127 @@ public class RedisCartService {
         }
         Cart updatedCart = cartRepository.save(cart);
         
-        String cartKey = getCartKey(cart.getUser().getUserid());
-        HashOperations<String, String, Object> hashOps = redisTemplate.opsForHash();
-        hashOps.put(cartKey, String.valueOf(cartId), updatedCart);
-        
+        evict(userId);
         return updatedCart;
     }
     
-    public void removeFromCart(Long cartId) {
-        Cart cart = cartRepository.findById(cartId).orElse(null);
-        if (cart != null) {
-            String cartKey = getCartKey(cart.getUser().getUserid());
-            HashOperations<String, String, Object> hashOps = redisTemplate.opsForHash();
-            hashOps.delete(cartKey, String.valueOf(cartId));
+    public void removeFromCart(Long userId, Long cartId) {
+        if (writeBehind.isEnabled()) {
+            loadIfAbsent(userId);
+            writeBehind.removeLine(userId, cartId);
+            return;
         }
+        
+        getOwnedCart(userId, cartId);
         cartRepository.deleteById(cartId);
+        evict(userId);
     }
     
     @Transactional
-    public void clearCart(User user) {
-        String cartKey = getCartKey(user.getUserid());
-        redisTemplate.delete(cartKey);
-        cartRepository.deleteByUser(user);
+    public void clearCart(Long userId) {
+        if (writeBehind.isEnabled()) {
+            writeBehind.clear(userId);
+            return;
+        }
+        
+        evict(userId);
+        cartRepository.deleteByUserUserid(userId);
     }
     
     public void incrementQuantity(Long userId, Long cartId) {
-        String cartKey = getCartKey(userId);
-        HashOperations<String, String, Object> hashOps = redisTemplate.opsForHash();
-        
-        Cart cart = (Cart) hashOps.get(cartKey, String.valueOf(cartId));
-        if (cart != null) {
-            Product product = cart.getProduct();
-            if (product.getStock() > cart.getQuantity()) {
-                cart.setQuantity(cart.getQuantity() + 1);
-                hashOps.put(cartKey, String.valueOf(cartId), cart);
-                cartRepository.save(cart);
-            } else {
-                throw new RuntimeException("Cannot exceed available stock");
+        if (writeBehind.isEnabled()) {
+            CartLine line = getLine(userId, cartId);
+            Product product = productService.getProductById(line.pid());
+            writeBehind.updateLine(userId, line, 1, true, null, product.getStock());
+            return;
+        }
+        
+        Cart cart = getOwnedCart(userId, cartId);
+        if (cartRepository.addQuantityWithinLimit(cartId, 1, cart.getProduct().getStock()) == 0) {
+            throw new RuntimeException("Cannot exceed available stock");
+        }
+        evict(userId);
+    }
+    
+    // Write-behind only reaches MySQL later, so anything the column would refuse is stopped here
+    private static void checkSize(String size) {
+        if (size != null && size.length() > Cart.MAX_SIZE_LENGTH) {
+            throw new RuntimeException("Size must be at most " + Cart.MAX_SIZE_LENGTH + " characters");
+        }
+    }
+    
+    private Cart getOwnedCart(Long userId, Long cartId) {
+        Cart cart = cartRepository.findById(cartId)
+                .orElseThrow(() -> new RuntimeException("Cart item not found"));
+        if (!cart.getUser().getUserid().equals(userId)) {
+            throw new RuntimeException("Cart item not found");
+        }
+        return cart;
+    }
+    
+    // Only used to learn the product (for its stock ceiling); the scripts re-read the line atomically
+    private CartLine getLine(Long userId, Long cartId) {
+        loadIfAbsent(userId);
+        String prefix = cartId + "|";
+        for (Map.Entry<String, String> entry : lines().entries(getCartKey(userId)).entrySet()) {
+            if (entry.getValue().startsWith(prefix)) {
+                return CartLine.decode(entry.getKey(), entry.getValue());
             }
         }
+        throw new RuntimeException("Cart item not found");
     }
     
-    private void syncToRedis(Long userId, List<Cart> carts) {
-        if (carts.isEmpty()) return;
-        
-        String cartKey = getCartKey(userId);
-        HashOperations<String, String, Object> hashOps = redisTemplate.opsForHash();
+    // Write-behind mutations must start from the full cart, not an empty hash. The checks here
+    // only save the MySQL read; the load itself is skipped atomically if the cart appeared meanwhile.
+    private void loadIfAbsent(Long userId) {
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(getCartKey(userId)))
+                || writeBehind.isEmptied(userId)) {
+            return;
+        }
+        syncToRedis(userId, cartRepository.findByUserUserid(userId));
+    }
+    
+    private void evict(Long userId) {
+        stringRedisTemplate.delete(getCartKey(userId));
+    }
+    
+    // Rows for the same (product, size) left over from before lines were merged collapse into the oldest
+    private List<Cart> syncToRedis(Long userId, List<Cart> carts) {
+        if (carts.isEmpty()) return carts;
         
+        Map<String, Cart> byField = new LinkedHashMap<>();
+        Set<Cart> raised = new LinkedHashSet<>();
+        List<Long> duplicates = new ArrayList<>();
         for (Cart cart : carts) {
-            hashOps.put(cartKey, String.valueOf(cart.getId()), cart);
+            String field = CartLine.field(cart.getProduct().getPid(), cart.getSize());
+            Cart kept = byField.get(field);
+            if (kept == null) {
+                byField.put(field, cart);
+            } else {
+                kept.setQuantity(kept.getQuantity() + cart.getQuantity());
+                raised.add(kept);
+                duplicates.add(cart.getId());
+            }
         }
-        redisTemplate.expire(cartKey, CART_TTL_HOURS, TimeUnit.HOURS);
+        boolean merged = !duplicates.isEmpty();
+        
+        // With write-behind the flusher mirrors the merge; otherwise MySQL has to match what Redis shows
+        if (merged && !writeBehind.isEnabled()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    cartRepository.saveAll(raised);
+                    cartRepository.deleteAllByIdInBatch(duplicates);
+                });
+            } catch (Exception e) {
+                // Not cached, so the next read tries the merge again
+                System.err.println("Failed to merge duplicate cart lines for user " + userId + ": " + e.getMessage());
+                return new ArrayList<>(byField.values());
+            }
+        }
+        
+        Map<String, String> encoded = new LinkedHashMap<>();
+        byField.forEach((field, cart) -> encoded.put(field, CartLine.of(cart).encode()));
+        writeBehind.load(userId, encoded, merged && writeBehind.isEnabled());
+        return new ArrayList<>(byField.values());
     }
-}
+}
\ No newline at end of file
@@ -1,10 +1,8 @@
 package com.ecommerce.service;
 
 import com.ecommerce.entity.Product;
-import com.ecommerce.entity.User;
 import com.ecommerce.entity.Wishlist;
 import com.ecommerce.repository.ProductRepository;
-import com.ecommerce.repository.ReviewRepository;
 import com.ecommerce.repository.WishlistRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -30,7 +28,10 @@ public class RedisWishlistService {
     private ProductRepository productRepository;
 
     @Autowired
-    private ReviewRepository reviewRepository;
+    private RatingAggregationService ratingAggregationService;
+
+    @Autowired
+    private UserLookupService userLookupService;
 
     private static final String WISHLIST_KEY_PREFIX = "wishlist:user:";
     private static final long WISHLIST_TTL_MINUTES = 15;
@@ -39,23 +40,23 @@ public class RedisWishlistService {
         return WISHLIST_KEY_PREFIX + userId;
     }
 
-    public List<Wishlist> getUserWishlist(User user) {
-        String key = getWishlistKey(user.getUserid());
+    public List<Wishlist> getUserWishlist(Long userId) {
+        String key = getWishlistKey(userId);
         SetOperations<String, Object> setOps = redisTemplate.opsForSet();
 
         Set<Object> cachedIds = setOps.members(key);
 
         if (cachedIds != null && !cachedIds.isEmpty()) {
-            return wishlistRepository.findByUser(user).stream()
-                    .peek(item -> populateRatingData(item.getProduct()))
-                    .collect(Collectors.toList());
+            List<Wishlist> wishlist = wishlistRepository.findByUserUserid(userId);
+            ratingAggregationService.populateRatingData(
+                    wishlist.stream().map(Wishlist::getProduct).collect(Collectors.toList()));
+            return wishlist;
         }
 
-        List<Wishlist> wishlist = wishlistRepository.findByUser(user);
-        wishlist.forEach(item -> {
-            populateRatingData(item.getProduct());
-            setOps.add(key, item.getProduct().getPid());
-        });
+        List<Wishlist> wishlist = wishlistRepository.findByUserUserid(userId);
+        ratingAggregationService.populateRatingData(
+                wishlist.stream().map(Wishlist::getProduct).collect(Collectors.toList()));
+        wishlist.forEach(item -> setOps.add(key, item.getProduct().getPid()));
 
         if (!wishlist.isEmpty()) {
             redisTemplate.expire(key, WISHLIST_TTL_MINUTES, TimeUnit.MINUTES);
@@ -65,18 +66,18 @@ public class RedisWishlistService {
     }
 
     @Transactional
-    public Wishlist addToWishlist(User user, Long productId) {
+    public Wishlist addToWishlist(Long userId, Long productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
 
-        if (wishlistRepository.findByUserAndProductPid(user, productId).isPresent()) {
+        if (wishlistRepository.existsByUserUseridAndProductPid(userId, productId)) {
             throw new RuntimeException("Product already in wishlist");
         }
 
-        Wishlist wishlist = new Wishlist(user, product);
+        Wishlist wishlist = new Wishlist(userLookupService.getUser(userId), product);
         Wishlist saved = wishlistRepository.save(wishlist);
 
-        String key = getWishlistKey(user.getUserid());
+        String key = getWishlistKey(userId);
         SetOperations<String, Object> setOps = redisTemplate.opsForSet();
         setOps.add(key, productId);
         redisTemplate.expire(key, WISHLIST_TTL_MINUTES, TimeUnit.MINUTES);
@@ -85,16 +86,16 @@ public class RedisWishlistService {
     }
 
     @Transactional
-    public void removeFromWishlist(User user, Long productId) {
-        wishlistRepository.deleteByUserAndProductPid(user, productId);
+    public void removeFromWishlist(Long userId, Long productId) {
+        wishlistRepository.deleteByUserUseridAndProductPid(userId, productId);
 
-        String key = getWishlistKey(user.getUserid());
+        String key = getWishlistKey(userId);
         SetOperations<String, Object> setOps = redisTemplate.opsForSet();
         setOps.remove(key, productId);
     }
 
-    public boolean isInWishlist(User user, Long productId) {
-        String key = getWishlistKey(user.getUserid());
+    public boolean isInWishlist(Long userId, Long productId) {
+        String key = getWishlistKey(userId);
         SetOperations<String, Object> setOps = redisTemplate.opsForSet();
 
         Boolean isMember = setOps.isMember(key, productId);
@@ -102,13 +103,6 @@ public class RedisWishlistService {
             return true;
         }
 
-        return wishlistRepository.findByUserAndProductPid(user, productId).isPresent();
-    }
-
-    private void populateRatingData(Product product) {
-        Double avgRating = reviewRepository.getAverageRatingByProductId(product.getPid());
-        Long reviewCount = reviewRepository.getReviewCountByProductId(product.getPid());
-        product.setAverageRating(avgRating != null ? avgRating : 0.0);
-        product.setReviewCount(reviewCount != null ? reviewCount : 0L);
+        return wishlistRepository.existsByUserUseridAndProductPid(userId, productId);
     }
 }
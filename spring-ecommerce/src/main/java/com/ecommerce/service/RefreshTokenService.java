@@ -0,0 +1,169 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.User;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Refresh-token rotation with token families. Each family holds the id of its one live
+// refresh token; presenting an older id means the token was stolen or replayed, and the
+// whole family is revoked. Only family ids are ever revoked (rotation itself is the family
+// compare-and-set), and they are mirrored into a bloom filter on every node.
+@Service
+public class RefreshTokenService implements MessageListener {
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${auth.refresh.bloom.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    @Value("${auth.refresh.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private static final String FAMILY_PREFIX = "auth:refresh:family:";
+    private static final String REVOKED_PREFIX = "auth:refresh:revoked:";
+    private static final String CHANNEL = "auth:refresh:revoked";
+
+    // 1 = rotated, 0 = family unknown (expired or logged out), -1 = stale token replayed
+    private static final RedisScript<Long> ROTATE_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[1]) " +
+            "if not current then return 0 end " +
+            "if current == ARGV[1] then " +
+            "  redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) " +
+            "  return 1 " +
+            "end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return -1", Long.class);
+
+    private volatile RevocationBloomFilter revoked;
+    // Non-null while resync is scanning, so revocations arriving mid-scan land in both filters
+    private volatile RevocationBloomFilter rebuilding;
+
+    @PostConstruct
+    public void init() {
+        revoked = new RevocationBloomFilter(expectedInsertions, falsePositiveRate);
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        resync();
+    }
+
+    public String issue(User user) {
+        String familyId = UUID.randomUUID().toString();
+        String tokenId = UUID.randomUUID().toString();
+        stringRedisTemplate.opsForValue().set(FAMILY_PREFIX + familyId, tokenId,
+                jwtService.getRefreshTokenExpiration(), TimeUnit.MILLISECONDS);
+        return jwtService.generateRefreshToken(user, familyId, tokenId);
+    }
+
+    public Claims verify(String refreshToken) {
+        Claims claims;
+        try {
+            claims = jwtService.extractClaims(refreshToken);
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+        String familyId = claims.get("family", String.class);
+        if (!"REFRESH".equals(claims.get("tokenType", String.class)) || claims.getId() == null || familyId == null) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+
+        if (isRevoked(familyId)) {
+            throw new RuntimeException("Refresh token revoked");
+        }
+        return claims;
+    }
+
+    public String rotate(Claims claims, User user) {
+        String familyId = claims.get("family", String.class);
+        String newTokenId = UUID.randomUUID().toString();
+        Long result = stringRedisTemplate.execute(ROTATE_SCRIPT, List.of(FAMILY_PREFIX + familyId),
+                claims.getId(), newTokenId, String.valueOf(jwtService.getRefreshTokenExpiration()));
+
+        if (result == null || result == 0) {
+            throw new RuntimeException("Refresh token expired or revoked");
+        }
+        if (result < 0) {
+            // An already-rotated token came back: treat the family as compromised
+            revokeFamily(familyId);
+            throw new RuntimeException("Refresh token reuse detected");
+        }
+        return jwtService.generateRefreshToken(user, familyId, newTokenId);
+    }
+
+    public void revoke(String refreshToken) {
+        Claims claims = verify(refreshToken);
+        revokeFamily(claims.get("family", String.class));
+    }
+
+    private void revokeFamily(String familyId) {
+        stringRedisTemplate.delete(FAMILY_PREFIX + familyId);
+        stringRedisTemplate.opsForValue().set(REVOKED_PREFIX + familyId, "1",
+                jwtService.getRefreshTokenExpiration(), TimeUnit.MILLISECONDS);
+        remember(familyId);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, familyId);
+        } catch (Exception e) {
+            System.err.println("Failed to publish token revocation: " + e.getMessage());
+        }
+    }
+
+    private boolean isRevoked(String id) {
+        if (!revoked.mightContain(id)) {
+            return false;
+        }
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(REVOKED_PREFIX + id));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        remember(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void remember(String id) {
+        revoked.put(id);
+        RevocationBloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(id);
+        }
+    }
+
+    // Rebuilds the filter from Redis: picks up messages missed while disconnected and
+    // drops ids whose revocation marker has expired
+    @Scheduled(fixedDelayString = "${auth.refresh.bloom.resync-ms:300000}", initialDelayString = "${auth.refresh.bloom.resync-ms:300000}")
+    public synchronized void resync() {
+        RevocationBloomFilter rebuilt = new RevocationBloomFilter(expectedInsertions, falsePositiveRate);
+        rebuilding = rebuilt;
+        ScanOptions options = ScanOptions.scanOptions().match(REVOKED_PREFIX + "*").count(1000).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            cursor.forEachRemaining(key -> rebuilt.put(key.substring(REVOKED_PREFIX.length())));
+            revoked = rebuilt;
+        } catch (Exception e) {
+            System.err.println("Revocation filter resync failed: " + e.getMessage());
+        } finally {
+            rebuilding = null;
+        }
+    }
+}
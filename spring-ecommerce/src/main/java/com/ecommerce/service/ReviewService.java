@@ -3,12 +3,10 @@ package com.ecommerce.service;
 import com.ecommerce.entity.Order;
 import com.ecommerce.entity.Product;
 import com.ecommerce.entity.Review;
-import com.ecommerce.entity.User;
 import com.ecommerce.repository.OrderRepository;
 import com.ecommerce.repository.ProductRepository;
 import com.ecommerce.repository.ReviewRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import java.util.List;
 
@@ -24,22 +22,27 @@ public class ReviewService {
     @Autowired
     private ProductRepository productRepository;
     
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private UserLookupService userLookupService;
+    
     public List<Review> getProductReviews(Long productId) {
         return reviewRepository.findByProductPid(productId);
     }
     
-    @CacheEvict(value = {"products", "product"}, allEntries = true)
-    public Review addReview(User user, Long productId, Integer rating, String comment) {
+    public Review addReview(Long userId, Long productId, Integer rating, String comment) {
         // Check if user has purchased the product and it's delivered
         boolean hasDeliveredOrder = orderRepository.existsByUserUseridAndProductPidAndStatus(
-            user.getUserid(), productId, Order.OrderStatus.DELIVERED
+            userId, productId, Order.OrderStatus.DELIVERED
         );
         if (!hasDeliveredOrder) {
             throw new RuntimeException("You can only review products that have been delivered to you");
         }
         
         // Check if user already reviewed this product
-        if (reviewRepository.existsByUserUseridAndProductPid(user.getUserid(), productId)) {
+        if (reviewRepository.existsByUserUseridAndProductPid(userId, productId)) {
             throw new RuntimeException("You have already reviewed this product");
         }
         
@@ -47,12 +50,15 @@ public class ReviewService {
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         
         Review review = new Review();
-        review.setUser(user);
+        review.setUser(userLookupService.getUser(userId));
         review.setProduct(product);
         review.setRating(rating);
         review.setComment(comment);
         
-        return reviewRepository.save(review);
+        Review saved = reviewRepository.save(review);
+        // Refreshes the rating facet and evicts only the caches holding this product
+        productService.reindex(product, ProductChangedEvent.Change.RATING);
+        return saved;
     }
     
     public boolean canUserReview(Long userId, Long productId) {
@@ -0,0 +1,237 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Checkout takes stock straight away and each order line holds it until the order is delivered
+// (consumed), cancelled, or left pending past its hold time (released, the order stays pending
+// and takes stock again when it is delivered). Every stock change is a
+// conditional UPDATE on the live row - never a read-modify-write of the versioned entity.
+@Service
+public class StockReservationService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private FlashSaleInventoryService flashSale;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${order.reservation.hold-minutes:4320}")
+    private long holdMinutes;
+
+    @Value("${order.reservation.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    private static final String TAKE_SQL =
+            "UPDATE product SET stock = stock - ?, version = version + 1 WHERE pid = ? AND stock >= ? AND flash_shards IS NULL";
+    private static final String RETURN_SQL =
+            "UPDATE product SET stock = stock + ?, version = version + 1 WHERE pid = ?";
+    // Orders placed before reservations never took stock at checkout; they keep the old clamp at zero
+    private static final String TAKE_CLAMPED_SQL =
+            "UPDATE product SET stock = GREATEST(stock - ?, 0), version = version + 1 WHERE pid = ? AND flash_shards IS NULL";
+
+    // Must run inside the checkout transaction: any shortfall throws and rolls back every line.
+    // Flash-sale products are claimed from their Redis shards, everything else from the product row.
+    public void hold(List<Order> orders) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (Order order : orders) {
+            quantities.merge(order.getProduct().getPid(), order.getQuantity(), Integer::sum);
+        }
+
+        Map<Long, Integer> shards = flashSale.activeShards(quantities.keySet());
+        Map<Long, Integer> rows = new TreeMap<>();
+        Map<Long, Integer> flash = new TreeMap<>();
+        quantities.forEach((pid, qty) -> (shards.containsKey(pid) ? flash : rows).put(pid, qty));
+
+        if (!flash.isEmpty()) {
+            Long failed = flashSale.claimAll(flash, shards);
+            if (failed != null) {
+                String name = orders.stream().filter(order -> order.getProduct().getPid().equals(failed))
+                        .findFirst().map(order -> order.getProduct().getName()).orElse(String.valueOf(failed));
+                throw new RuntimeException("Insufficient stock for product: " + name + ". Available: "
+                        + flashSale.totalStock(failed, shards.get(failed)) + ", Requested: " + flash.get(failed));
+            }
+        }
+        if (!rows.isEmpty()) {
+            take(rows);
+        }
+
+        // Flash products keep the cart's copy; their stock mirror is refreshed by the reconciler
+        Map<Long, Product> live = refresh(rows.keySet());
+        LocalDateTime until = LocalDateTime.now().plusMinutes(holdMinutes);
+        for (Order order : orders) {
+            order.setProduct(live.getOrDefault(order.getProduct().getPid(), order.getProduct()));
+            order.setReservation(Order.ReservationStatus.HELD);
+            order.setReservedUntil(until);
+        }
+    }
+
+    // Delivery keeps what checkout took; only orders that hold nothing take stock now
+    public void consume(Order order) {
+        if (orderRepository.transitionReservation(order.getId(), Order.ReservationStatus.HELD,
+                Order.ReservationStatus.CONSUMED, null) == 0
+                && orderRepository.reserveUnheld(order.getId(), Order.ReservationStatus.CONSUMED, null,
+                Order.ReservationStatus.RELEASED) == 1) {
+            takeClamped(order);
+        }
+        order.setReservation(Order.ReservationStatus.CONSUMED);
+        order.setReservedUntil(null);
+    }
+
+    public void release(Order order) {
+        if (orderRepository.transitionReservation(order.getId(), Order.ReservationStatus.HELD,
+                Order.ReservationStatus.RELEASED, null) == 1) {
+            returnStock(order);
+            order.setReservation(Order.ReservationStatus.RELEASED);
+            order.setReservedUntil(null);
+        }
+    }
+
+    // For orders that were reserved but never saved (async intake that failed or was turned away)
+    public void abandon(List<Order> orders) {
+        for (Order order : orders) {
+            returnStock(order);
+        }
+    }
+
+    // A cancelled order put back to pending has to win its stock again
+    public void rehold(Order order) {
+        LocalDateTime until = LocalDateTime.now().plusMinutes(holdMinutes);
+        if (orderRepository.reserveUnheld(order.getId(), Order.ReservationStatus.HELD, until,
+                Order.ReservationStatus.RELEASED) == 1) {
+            hold(List.of(order));
+            order.setReservation(Order.ReservationStatus.HELD);
+            order.setReservedUntil(until);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.reservation.sweep-interval-ms:60000}")
+    public void releaseExpired() {
+        try {
+            List<Long> expired = orderRepository.findExpiredReservations(Order.ReservationStatus.HELD,
+                    LocalDateTime.now(), PageRequest.of(0, sweepBatchSize));
+            int released = 0;
+            for (Long orderId : expired) {
+                Boolean done = transactionTemplate.execute(status -> expire(orderId));
+                if (Boolean.TRUE.equals(done)) released++;
+            }
+            if (released > 0) {
+                System.out.println("Released stock for " + released + " expired order reservations");
+            }
+        } catch (Exception e) {
+            System.err.println("Stock reservation sweep failed: " + e.getMessage());
+        }
+    }
+
+    // Only the hold expires; the order itself is left as it is
+    private boolean expire(Long orderId) {
+        if (orderRepository.transitionReservation(orderId, Order.ReservationStatus.HELD,
+                Order.ReservationStatus.RELEASED, null) == 0) {
+            return false;  // delivered or cancelled since it was listed
+        }
+        orderRepository.findById(orderId).ifPresent(this::returnStock);
+        return true;
+    }
+
+    private void returnStock(Order order) {
+        Long pid = order.getProduct().getPid();
+        if (!flashSale.giveBack(pid, order.getQuantity())) {
+            jdbcTemplate.update(RETURN_SQL, order.getQuantity(), pid);
+            refresh(List.of(pid));
+        }
+    }
+
+    private void takeClamped(Order order) {
+        Long pid = order.getProduct().getPid();
+        Map<Long, Integer> shards = flashSale.activeShards(List.of(pid));
+        if (shards.isEmpty()) {
+            jdbcTemplate.update(TAKE_CLAMPED_SQL, order.getQuantity(), pid);
+            refresh(List.of(pid));
+        } else {
+            // Delivery doesn't fail on a sold-out sale; like the clamp, a shortfall is let go
+            flashSale.claimAll(Map.of(pid, order.getQuantity()), shards);
+        }
+    }
+
+    // One JDBC batch for all lines; each statement only applies while stock >= qty. Pids are taken
+    // in ascending order so concurrent checkouts lock rows in the same order.
+    private void take(Map<Long, Integer> quantities) {
+        List<Long> pids = new ArrayList<>(new TreeMap<>(quantities).keySet());
+        List<Object[]> args = new ArrayList<>(pids.size());
+        for (Long pid : pids) {
+            int qty = quantities.get(pid);
+            args.add(new Object[]{qty, pid, qty});
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(TAKE_SQL, args);
+        List<Long> shortfall = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) shortfall.add(pids.get(i));
+        }
+        if (!shortfall.isEmpty()) {
+            throw new RuntimeException(shortfallMessage(shortfall, quantities));
+        }
+    }
+
+    // Failed lines were left untouched, so the stock read here is the live value
+    private String shortfallMessage(List<Long> pids, Map<Long, Integer> quantities) {
+        String placeholders = String.join(",", Collections.nCopies(pids.size(), "?"));
+        Map<Long, String> messages = new HashMap<>();
+        jdbcTemplate.query("SELECT pid, name, stock FROM product WHERE pid IN (" + placeholders + ")",
+                rs -> {
+                    long pid = rs.getLong("pid");
+                    messages.put(pid, "Insufficient stock for product: " + rs.getString("name") +
+                            ". Available: " + rs.getInt("stock") + ", Requested: " + quantities.get(pid));
+                }, pids.toArray());
+
+        List<String> lines = new ArrayList<>(pids.size());
+        for (Long pid : pids) {
+            lines.add(messages.getOrDefault(pid, "Product not found: " + pid));
+        }
+        return String.join("; ", lines);
+    }
+
+    // Stock moved underneath Hibernate: reload so the facet index and product caches see the live value
+    private Map<Long, Product> refresh(Collection<Long> pids) {
+        Map<Long, Product> products = new HashMap<>();
+        for (Long pid : pids) {
+            Product product = entityManager.find(Product.class, pid);
+            if (product == null) continue;
+            entityManager.refresh(product);
+            productService.reindex(product, ProductChangedEvent.Change.UPDATED);
+            products.put(pid, product);
+        }
+        return products;
+    }
+}
@@ -0,0 +1,29 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.User;
+import com.ecommerce.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+// Full User rows for the few writes that need the entity (new carts, orders, reviews, products).
+// Kept in-process only, so password hashes never land in Redis.
+@Service
+public class UserLookupService {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    private final Cache<Long, User> users = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+    
+    public User getUser(Long userId) {
+        return users.get(userId, id -> userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found")));
+    }
+}
@@ -4,7 +4,6 @@ import com.ecommerce.entity.Product;
 import com.ecommerce.entity.User;
 import com.ecommerce.entity.Wishlist;
 import com.ecommerce.repository.ProductRepository;
-import com.ecommerce.repository.ReviewRepository;
 import com.ecommerce.repository.WishlistRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
@@ -23,12 +22,13 @@ public class WishlistService {
     private ProductRepository productRepository;
     
     @Autowired
-    private ReviewRepository reviewRepository;
+    private RatingAggregationService ratingAggregationService;
     
     @Cacheable(value = "wishlist", key = "'user:' + #user.userid")
     public List<Wishlist> getUserWishlist(User user) {
         List<Wishlist> wishlist = wishlistRepository.findByUser(user);
-        wishlist.forEach(item -> populateRatingData(item.getProduct()));
+        ratingAggregationService.populateRatingData(
+                wishlist.stream().map(Wishlist::getProduct).toList());
         return wishlist;
     }
     
@@ -55,11 +55,4 @@ public class WishlistService {
     public boolean isInWishlist(User user, Long productId) {
         return wishlistRepository.findByUserAndProductPid(user, productId).isPresent();
     }
-    
-    private void populateRatingData(Product product) {
-        Double avgRating = reviewRepository.getAverageRatingByProductId(product.getPid());
-        Long reviewCount = reviewRepository.getReviewCountByProductId(product.getPid());
-        product.setAverageRating(avgRating != null ? avgRating : 0.0);
-        product.setReviewCount(reviewCount != null ? reviewCount : 0L);
-    }
 }
\ No newline at end of file
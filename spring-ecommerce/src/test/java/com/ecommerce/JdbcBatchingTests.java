@@ -0,0 +1,72 @@
+package com.ecommerce;
+
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.service.RedisCartService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checks against the configured MySQL that pooled ids let Hibernate batch inserts.
+// Skipped when that database is not reachable.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@EnabledIf("mysqlReachable")
+@Transactional
+class JdbcBatchingTests {
+
+	@MockBean
+	private RedisTemplate<String, Object> redisTemplate;
+
+	@MockBean
+	private RedisCartService redisCartService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Test
+	void insertsOfOneEntityShareABatch() {
+		Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			products.add(new Product("Batch test " + i, new BigDecimal("9.99"), "", "", null));
+		}
+		statistics.clear();
+
+		productRepository.saveAll(products);
+		entityManager.flush();
+
+		assertEquals(40, statistics.getEntityInsertCount());
+		// One batched INSERT plus the id block fetch; without batching this would be 40+
+		assertTrue(statistics.getPrepareStatementCount() <= 5,
+				"statements prepared: " + statistics.getPrepareStatementCount());
+	}
+
+	static boolean mysqlReachable() {
+		try (var connection = DriverManager.getConnection("jdbc:mysql://localhost:3306/ecom?connectTimeout=2000",
+				System.getenv().getOrDefault("DB_USERNAME", "root"),
+				System.getenv().getOrDefault("DB_PASSWORD", "password"))) {
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+}
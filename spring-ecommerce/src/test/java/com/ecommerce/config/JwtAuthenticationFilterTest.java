@@ -0,0 +1,64 @@
+package com.ecommerce.config;
+
+import com.ecommerce.dto.AuthenticatedUser;
+import com.ecommerce.entity.User;
+import com.ecommerce.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JwtAuthenticationFilterTest {
+
+    private JwtService jwtService;
+    private JwtAuthenticationFilter filter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", "0123456789abcdef0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(jwtService, "accessTokenExpiration", 900000L);
+        ReflectionTestUtils.setField(jwtService, "refreshTokenExpiration", 604800000L);
+        ReflectionTestUtils.setField(jwtService, "claimsCacheMaxSize", 100L);
+        jwtService.init();
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtService", jwtService);
+
+        user = new User("alice", "alice@example.com", "hash", User.UserType.CUSTOMER);
+        user.setUserid(7L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void accessTokenAuthenticates() throws Exception {
+        Authentication authentication = filterWith(jwtService.generateAccessToken(user));
+
+        assertEquals(7L, ((AuthenticatedUser) authentication.getPrincipal()).getUserId());
+    }
+
+    @Test
+    void refreshTokenIsNotABearerCredential() throws Exception {
+        assertNull(filterWith(jwtService.generateRefreshToken(user, "family", "token")));
+    }
+
+    private Authentication filterWith(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,52 @@
+package com.ecommerce.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void burstUpToCapacityThenRefillsOverTime() {
+        TokenBucket bucket = new TokenBucket(3, 2, 0);
+
+        assertTrue(bucket.tryConsume(0));
+        assertTrue(bucket.tryConsume(0));
+        assertTrue(bucket.tryConsume(0));
+        assertFalse(bucket.tryConsume(0));
+
+        // 2 tokens/s -> one token after 500ms
+        assertFalse(bucket.tryConsume(499));
+        assertTrue(bucket.tryConsume(500));
+        assertFalse(bucket.tryConsume(500));
+
+        // Long idle never refills past capacity
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryConsume(60_000));
+        }
+        assertFalse(bucket.tryConsume(60_000));
+    }
+
+    @Test
+    void concurrentCallersNeverOverdraw() throws Exception {
+        TokenBucket bucket = new TokenBucket(100, 0, 0);
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            pool.execute(() -> {
+                if (bucket.tryConsume(0)) granted.incrementAndGet();
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(100, granted.get());
+    }
+}
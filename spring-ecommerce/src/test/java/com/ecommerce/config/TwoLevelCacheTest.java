@@ -0,0 +1,126 @@
+package com.ecommerce.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TwoLevelCacheTest {
+
+    private ConcurrentMapCache remoteCache;
+    private CacheInvalidationPublisher publisher;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        remoteCache = new ConcurrentMapCache("product");
+        publisher = mock(CacheInvalidationPublisher.class);
+        cache = new TwoLevelCache("product", Caffeine.newBuilder().maximumSize(100).build(), remoteCache, publisher,
+                60_000, Executors.newSingleThreadExecutor());
+    }
+
+    @Test
+    void remoteHitIsServedLocallyAfterwards() {
+        remoteCache.put(1L, "value");
+
+        assertEquals("value", cache.get(1L).get());
+        remoteCache.evict(1L);
+
+        assertEquals("value", cache.get(1L).get());
+    }
+
+    @Test
+    void evictDropsBothLevelsAndNotifiesOtherNodes() {
+        cache.put(1L, "value");
+
+        // put notifies once, evict once more
+        cache.evict(1L);
+
+        assertNull(cache.get(1L));
+        verify(publisher, times(2)).publishEvict("product", "1");
+    }
+
+    @Test
+    void remoteInvalidationOnlyDropsLocalCopy() {
+        cache.put(1L, "value");
+
+        cache.evictLocal("1");
+        remoteCache.put(1L, "fresh");
+
+        assertEquals("fresh", cache.get(1L).get());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(callers.submit(() -> cache.get(1L, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "loaded";
+            })));
+        }
+        // Callers arriving while the load runs wait on it; later ones hit the stored value
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("loaded", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        callers.shutdown();
+    }
+
+    @Test
+    void evictOfAnotherKeyDoesNotDiscardALoad() {
+        String value = cache.get(1L, () -> {
+            cache.evict(2L);
+            cache.evictLocal("3");
+            return "loaded";
+        });
+
+        assertEquals("loaded", value);
+        assertEquals("loaded", remoteCache.get(1L).get());
+    }
+
+    @Test
+    void evictOfTheLoadingKeyDiscardsTheLoadedValue() {
+        String value = cache.get(1L, () -> {
+            cache.evictLocal("1");
+            return "stale";
+        });
+
+        assertEquals("stale", value);
+        assertNull(remoteCache.get(1L));
+    }
+
+    @Test
+    void loadedValuesDoNotEvictOtherNodes() {
+        cache.get(1L, () -> "loaded");
+
+        verify(publisher, never()).publishEvict(anyString(), anyString());
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CacheWarmupServiceTest {
+
+    private CacheWarmupService service;
+
+    @BeforeEach
+    void setUp() {
+        CatalogSnapshotService catalogSnapshotService = new CatalogSnapshotService();
+        ReflectionTestUtils.setField(catalogSnapshotService, "maxPageSize", 50);
+
+        service = new CacheWarmupService();
+        ReflectionTestUtils.setField(service, "catalogSnapshotService", catalogSnapshotService);
+    }
+
+    @Test
+    void onlyPagesWarmUpCanReplayAreCounted() {
+        service.recordPageAccess(0, 10, "price");
+        service.recordPageAccess(0, 10, "price");
+        service.recordPageAccess(0, 10, "price; DROP");
+        service.recordPageAccess(0, 5000, "pid");
+        service.recordPageAccess(0, 0, "pid");
+        service.recordPageAccess(-1, 10, "pid");
+        service.recordPageAccess(100000, 10, "pid");
+
+        Map<?, ?> pageHits = (Map<?, ?>) ReflectionTestUtils.getField(service, "pageHits");
+        assertEquals(1, pageHits.size());
+        assertEquals("0:10:price", pageHits.keySet().iterator().next());
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CartLineTest {
+
+    @Test
+    void roundTripsThroughCompactEncoding() {
+        CartLine line = new CartLine(11L, 42L, 3, new BigDecimal("499.50"), 1700000000000L, "XL|tall");
+
+        assertEquals("42|XL|tall", line.field());
+        assertEquals("11|3|499.50|1700000000000", line.encode());
+        assertEquals(line, CartLine.decode(line.field(), line.encode()));
+    }
+
+    @Test
+    void missingSizeDecodesAsNull() {
+        CartLine line = new CartLine(5L, 7L, 1, new BigDecimal("10"), 0L, null);
+
+        assertEquals("7|", line.field());
+        assertNull(CartLine.decode(line.field(), line.encode()).size());
+    }
+}
@@ -0,0 +1,169 @@
+package com.ecommerce.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Runs the cart Lua scripts against a real Redis (REDIS_HOST, default localhost:6379, database 15).
+// Skipped when none is reachable.
+class CartScriptsRedisTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("9.99");
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redis;
+
+    private CartWriteBehindService service;
+
+    @BeforeAll
+    static void connect() {
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+                System.getenv().getOrDefault("REDIS_HOST", "localhost"), 6379);
+        config.setDatabase(15);
+        connectionFactory = new LettuceConnectionFactory(config);
+        connectionFactory.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        boolean reachable;
+        try {
+            redis.execute(connection -> connection.ping(), true);
+            reachable = true;
+        } catch (Exception e) {
+            reachable = false;
+        }
+        assumeTrue(reachable, "Redis not reachable");
+        flushDatabase();
+
+        IdGeneratorInitializer idGenerators = mock(IdGeneratorInitializer.class);
+        when(idGenerators.reserveBlock(eq("cart"), anyInt())).thenReturn(101L, 5001L);
+
+        service = new CartWriteBehindService();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", mock(JdbcTemplate.class));
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "idGenerators", idGenerators);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "idBlockSize", 1000);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) flushDatabase();
+    }
+
+    @Test
+    void addingTheSameProductAndSizeRaisesOneLine() {
+        CartLine first = service.addOrMerge(7L, 5L, "M", 2, PRICE, 10);
+        CartLine second = service.addOrMerge(7L, 5L, "M", 3, PRICE, 10);
+
+        assertEquals(first.cartId(), second.cartId());
+        assertEquals(5, second.quantity());
+        assertTrue(first.cartId() > 100L);
+        assertEquals(1L, redis.opsForHash().size(CartWriteBehindService.CART_KEY_PREFIX + 7));
+        assertTrue(service.hasPendingChanges(7L));
+    }
+
+    @Test
+    void addAboveTheStockCeilingChangesNothing() {
+        service.addOrMerge(7L, 5L, "M", 8, PRICE, 10);
+
+        assertThrows(RuntimeException.class, () -> service.addOrMerge(7L, 5L, "M", 3, PRICE, 10));
+        assertEquals(8, line(7L, "5|M").quantity());
+    }
+
+    @Test
+    void changingSizeMergesIntoTheLineForThatSize() {
+        CartLine medium = service.addOrMerge(7L, 5L, "M", 2, PRICE, 10);
+        CartLine large = service.addOrMerge(7L, 5L, "L", 1, PRICE, 10);
+
+        CartLine merged = service.updateLine(7L, medium, null, false, "L", 10);
+
+        assertEquals(large.cartId(), merged.cartId());
+        assertEquals(3, merged.quantity());
+        assertEquals(1L, redis.opsForHash().size(CartWriteBehindService.CART_KEY_PREFIX + 7));
+    }
+
+    @Test
+    void incrementIsCappedAtTheCeiling() {
+        CartLine line = service.addOrMerge(7L, 5L, "M", 2, PRICE, 2);
+
+        assertThrows(RuntimeException.class, () -> service.updateLine(7L, line, 1, true, null, 2));
+        assertEquals(2, line(7L, "5|M").quantity());
+    }
+
+    @Test
+    void removingTheLastLineMarksTheCartEmptied() {
+        CartLine line = service.addOrMerge(7L, 5L, "M", 1, PRICE, 10);
+
+        service.removeLine(7L, line.cartId());
+
+        assertTrue(service.isEmptied(7L));
+        assertThrows(RuntimeException.class, () -> service.removeLine(7L, line.cartId()));
+        service.addOrMerge(7L, 6L, null, 1, PRICE, 10);
+        assertFalse(service.isEmptied(7L));
+    }
+
+    @Test
+    void coldLoadNeverOverwritesACartThatAlreadyExists() {
+        service.addOrMerge(7L, 5L, "M", 4, PRICE, 10);
+
+        boolean loaded = service.load(7L, Map.of("5|M", "1|1|9.99|1700000000000"), false);
+
+        assertFalse(loaded);
+        assertEquals(4, line(7L, "5|M").quantity());
+        assertTrue(service.load(8L, Map.of("5|M", "1|1|9.99|1700000000000"), false));
+        assertFalse(service.hasPendingChanges(8L));
+    }
+
+    @Test
+    void exhaustedBlockIsReplacedByANewReservation() {
+        assertEquals(101L, service.nextCartId());
+        // The rest of [101, 1100] handed out
+        redis.opsForValue().set("cart:id:seq", "1100");
+
+        assertEquals(5001L, service.nextCartId());
+        assertEquals("6000", redis.opsForValue().get("cart:id:limit"));
+    }
+
+    private CartLine line(Long userId, String field) {
+        Object value = redis.opsForHash().get(CartWriteBehindService.CART_KEY_PREFIX + userId, field);
+        return CartLine.decode(field, String.valueOf(value));
+    }
+
+    private static void flushDatabase() {
+        redis.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+    }
+}
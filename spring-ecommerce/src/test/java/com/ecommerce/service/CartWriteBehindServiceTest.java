@@ -0,0 +1,230 @@
+package com.ecommerce.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartWriteBehindServiceTest {
+
+    private static final String DIRTY = "cart:dirty";
+    private static final String FLUSHING = "cart:flushing";
+    private static final String LINE_FIELD = "5|M";
+    private static final String LINE_VALUE = "11|2|9.99|1700000000000";
+
+    private CartWriteBehindService service;
+    private StringRedisTemplate redis;
+    private ZSetOperations<String, String> zset;
+    private JdbcTemplate jdbcTemplate;
+    private IdGeneratorInitializer idGenerators;
+    // userId -> what the claim script returns for that user
+    private Map<String, List<Object>> claims;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redis = mock(StringRedisTemplate.class);
+        zset = mock(ZSetOperations.class);
+        when(redis.opsForZSet()).thenReturn(zset);
+        doReturn(runId("run-1")).when(redis).execute(any(RedisCallback.class));
+        when(redis.execute(eq(script("CLAIM_SCRIPT")), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(1);
+            return claims.get(keys.get(0).substring(CartWriteBehindService.CART_KEY_PREFIX.length()));
+        });
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        idGenerators = mock(IdGeneratorInitializer.class);
+        when(idGenerators.reserveBlock("cart", 1000)).thenReturn(5001L);
+
+        service = new CartWriteBehindService();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "idGenerators", idGenerators);
+        ReflectionTestUtils.setField(service, "idBlockSize", 1000);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "batchSize", 200);
+        ReflectionTestUtils.setField(service, "shutdownTimeoutMs", 5000L);
+        service.init();
+    }
+
+    @Test
+    void flushMirrorsTheClaimedCartIntoMysql() {
+        dirty("7");
+        claims = Map.of("7", List.of("1000", LINE_FIELD, LINE_VALUE));
+
+        service.flush();
+
+        verify(jdbcTemplate).update("DELETE FROM cart WHERE userid = ? AND id NOT IN (?)", 7L, 11L);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO cart"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[0].equals(11L) && rows.get(0)[1].equals(7L)));
+        verify(zset).remove(FLUSHING, "7");
+    }
+
+    @Test
+    void emptiedCartDeletesEveryRow() {
+        dirty("7");
+        claims = Map.of("7", List.of("1000"));
+
+        service.flush();
+
+        verify(jdbcTemplate).update("DELETE FROM cart WHERE userid = ?", 7L);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void cartMissingFromRedisKeepsMysqlRows() {
+        dirty("7");
+        claims = Map.of("7", List.of("GONE"));
+
+        service.flush();
+
+        verify(jdbcTemplate, never()).update(startsWith("DELETE"), any(Object[].class));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void failedWriteRequeuesWithTheOriginalTimestamp() {
+        dirty("7");
+        claims = Map.of("7", List.of("1000", LINE_FIELD, LINE_VALUE));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("MySQL down"));
+
+        service.flush();
+
+        verify(zset).addIfAbsent(DIRTY, "7", 1000.0);
+        verify(zset).remove(FLUSHING, "7");
+    }
+
+    @Test
+    void cartRejectedByMysqlIsParkedWithoutHoldingBackTheBatch() {
+        dirty("7", "8");
+        claims = Map.of("7", List.of("1000", LINE_FIELD, LINE_VALUE),
+                "8", List.of("1000", "6|XXXXXXXXXXXL", "12|1|5.00|1700000000000"));
+        when(jdbcTemplate.batchUpdate(anyString(), argThat((List<Object[]> rows) -> rows.stream().anyMatch(row -> row[1].equals(8L)))))
+                .thenThrow(new DataIntegrityViolationException("Data too long for column 'size'"));
+
+        service.flush();
+
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO cart"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[1].equals(7L)));
+        verify(zset).add(eq("cart:parked"), eq("8"), anyDouble());
+        verify(zset, never()).addIfAbsent(eq(DIRTY), anyString(), anyDouble());
+        verify(zset).remove(FLUSHING, "8");
+    }
+
+    @Test
+    void abandonedClaimsGoBackToTheQueue() {
+        when(zset.rangeByScoreWithScores(eq(FLUSHING), eq(0.0), anyDouble()))
+                .thenReturn(Set.of(new DefaultTypedTuple<>("7", 500.0)));
+
+        service.flush();
+
+        verify(zset).addIfAbsent(DIRTY, "7", 500.0);
+        verify(zset).remove(FLUSHING, "7");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void redisRestartDropsCachedCartsThroughTheCleanCheck() {
+        doReturn(runId("run-2")).when(redis).execute(any(RedisCallback.class));
+        Cursor<String> carts = cursor("cart:items:7");
+        Cursor<String> markers = cursor("cart:emptied:8");
+        when(redis.scan(any(ScanOptions.class))).thenReturn(carts, markers);
+
+        service.flush();
+
+        RedisScript<Long> drop = (RedisScript<Long>) script("DROP_IF_CLEAN_SCRIPT");
+        verify(redis).execute(drop, List.of("cart:items:7", DIRTY, FLUSHING), "7");
+        verify(redis).execute(drop, List.of("cart:emptied:8", DIRTY, FLUSHING), "8");
+        verify(redis, never()).delete(anyString());
+    }
+
+    @Test
+    void shutdownDrainsEveryQueuedCart() {
+        when(zset.range(DIRTY, 0, 199)).thenReturn(Set.of("7"), Set.of("8"), Set.of());
+        claims = Map.of("7", List.of("1000", LINE_FIELD, LINE_VALUE),
+                "8", List.of("1000", "6|", "12|1|5.00|1700000000000"));
+
+        service.shutdown();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT INTO cart"), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exhaustedSequenceReservesABlockFromTheIdGenerator() {
+        List<String> sequence = List.of("cart:id:seq", "cart:id:limit");
+        when(redis.execute(eq((RedisScript<Long>) script("NEXT_ID_SCRIPT")), eq(sequence))).thenReturn(-1L, 5001L);
+
+        assertEquals(5001L, service.nextCartId());
+
+        // Once at startup, once when the block ran out
+        verify(idGenerators, times(2)).reserveBlock("cart", 1000);
+        verify(redis, times(2)).execute(script("INSTALL_BLOCK_SCRIPT"), sequence, "5000", "6000");
+    }
+
+    private void dirty(String... users) {
+        when(zset.range(DIRTY, 0, 199)).thenReturn(Set.of(users), Set.of());
+    }
+
+    private static RedisScript<?> script(String name) {
+        return (RedisScript<?>) ReflectionTestUtils.getField(CartWriteBehindService.class, name);
+    }
+
+    private static Properties runId(String id) {
+        Properties info = new Properties();
+        info.setProperty("run_id", id);
+        return info;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cursor<String> cursor(String key) {
+        Cursor<String> cursor = mock(Cursor.class);
+        doAnswer(invocation -> {
+            ((Consumer<String>) invocation.getArgument(0)).accept(key);
+            return null;
+        }).when(cursor).forEachRemaining(any());
+        return cursor;
+    }
+}
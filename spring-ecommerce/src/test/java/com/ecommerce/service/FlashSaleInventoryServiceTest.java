@@ -0,0 +1,94 @@
+package com.ecommerce.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FlashSaleInventoryServiceTest {
+
+    private FlashSaleInventoryService service;
+    // Stand-in for the shard keys in Redis
+    private final Map<String, Long> shards = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        // Every product in these tests is on sale with one shard, for the give-back path
+        HashOperations<String, Object, Object> products = mock(HashOperations.class);
+        when(redis.opsForHash()).thenReturn(products);
+        when(products.get(anyString(), any())).thenReturn("1");
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            String key = ((List<String>) invocation.getArgument(1)).get(0);
+            long wanted = Long.parseLong(invocation.getArgument(2));
+            long taken = Math.min(shards.getOrDefault(key, 0L), wanted);
+            shards.merge(key, -taken, Long::sum);
+            return taken;
+        });
+        when(values.increment(anyString(), anyLong())).thenAnswer(invocation ->
+                shards.merge(invocation.getArgument(0), invocation.getArgument(1), Long::sum));
+
+        service = new FlashSaleInventoryService();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        service.init();
+    }
+
+    @Test
+    void claimSpillsIntoOtherShardsWhenOneRunsShort() {
+        shards.put("flash:stock:1:0", 1L);
+        shards.put("flash:stock:1:1", 1L);
+        shards.put("flash:stock:1:2", 1L);
+
+        assertTrue(service.claim(1L, 3, 3));
+
+        assertEquals(0L, shards.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void failedClaimPutsBackWhatItTook() {
+        shards.put("flash:stock:1:0", 2L);
+        shards.put("flash:stock:1:1", 1L);
+
+        assertFalse(service.claim(1L, 4, 2));
+
+        assertEquals(2L, shards.get("flash:stock:1:0"));
+        assertEquals(1L, shards.get("flash:stock:1:1"));
+    }
+
+    @Test
+    void claimAllIsAllOrNothingAcrossProducts() {
+        shards.put("flash:stock:1:0", 5L);
+        shards.put("flash:stock:2:0", 1L);
+
+        assertEquals(2L, service.claimAll(Map.of(1L, 2, 2L, 3), Map.of(1L, 1, 2L, 1)));
+        assertEquals(5L, shards.get("flash:stock:1:0"));
+        assertEquals(1L, shards.get("flash:stock:2:0"));
+
+        assertNull(service.claimAll(Map.of(1L, 2, 2L, 1), Map.of(1L, 1, 2L, 1)));
+        assertEquals(3L, shards.get("flash:stock:1:0"));
+        assertEquals(0L, shards.get("flash:stock:2:0"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.AuthenticatedUser;
+import com.ecommerce.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtServiceTest {
+
+    private JwtService jwtService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secret", "0123456789abcdef0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(jwtService, "accessTokenExpiration", 900000L);
+        ReflectionTestUtils.setField(jwtService, "refreshTokenExpiration", 604800000L);
+        ReflectionTestUtils.setField(jwtService, "claimsCacheMaxSize", 100L);
+        jwtService.init();
+
+        user = new User("alice", "alice@example.com", "hash", User.UserType.CUSTOMER);
+        user.setUserid(7L);
+    }
+
+    @Test
+    void repeatedVerificationReusesCachedClaims() {
+        String token = jwtService.generateAccessToken(user);
+
+        assertSame(jwtService.extractClaims(token), jwtService.extractClaims(token));
+        assertEquals("alice@example.com", jwtService.extractEmail(token));
+        assertTrue(jwtService.validateToken(token, "alice@example.com"));
+    }
+
+    @Test
+    void principalIsBuiltFromClaims() {
+        AuthenticatedUser principal = AuthenticatedUser.fromClaims(
+                jwtService.extractClaims(jwtService.generateAccessToken(user)));
+
+        assertEquals(7L, principal.getUserId());
+        assertEquals("alice@example.com", principal.getName());
+        assertEquals(User.UserType.CUSTOMER, principal.getUserType());
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = jwtService.generateAccessToken(user);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertFalse(jwtService.isTokenValid(tampered));
+    }
+}
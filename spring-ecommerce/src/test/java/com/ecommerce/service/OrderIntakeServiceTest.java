@@ -0,0 +1,191 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.OrderIntakeStatus;
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.OrderIntake;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.User;
+import com.ecommerce.repository.OrderIntakeRepository;
+import com.ecommerce.repository.OrderRepository;
+import com.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderIntakeServiceTest {
+
+    private OrderIntakeService service;
+    private OrderService orderService;
+    private OrderRepository orderRepository;
+    private StockReservationService stockReservationService;
+    private OrderIntakeRepository intakeRepository;
+    private ProductRepository productRepository;
+    private UserLookupService userLookupService;
+    private HashOperations<String, Object, Object> hashes;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        orderService = mock(OrderService.class);
+        orderRepository = mock(OrderRepository.class);
+        stockReservationService = mock(StockReservationService.class);
+        intakeRepository = mock(OrderIntakeRepository.class);
+        productRepository = mock(ProductRepository.class);
+        userLookupService = mock(UserLookupService.class);
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        hashes = mock(HashOperations.class);
+        when(redis.opsForHash()).thenReturn(hashes);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+
+        service = new OrderIntakeService();
+        ReflectionTestUtils.setField(service, "orderService", orderService);
+        ReflectionTestUtils.setField(service, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(service, "cartService", mock(RedisCartService.class));
+        ReflectionTestUtils.setField(service, "stockReservationService", stockReservationService);
+        ReflectionTestUtils.setField(service, "intakeRepository", intakeRepository);
+        ReflectionTestUtils.setField(service, "productRepository", productRepository);
+        ReflectionTestUtils.setField(service, "userLookupService", userLookupService);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "recoveryBatchSize", 100);
+        service.init();
+        // Park the writer so queued checkouts stay queued
+        service.shutdown();
+        ReflectionTestUtils.setField(service, "queue", new ArrayBlockingQueue<>(1));
+    }
+
+    @Test
+    void fullQueueTurnsCheckoutsAwayBeforeReservingStock() {
+        when(orderService.ordersFromCart(7L)).thenAnswer(invocation -> new ArrayList<>(List.of(order(5L, 2))));
+
+        OrderIntakeStatus accepted = service.submit(7L);
+        assertEquals(OrderIntakeStatus.State.QUEUED, accepted.getState());
+
+        assertThrows(RejectedExecutionException.class, () -> service.submit(7L));
+        verify(stockReservationService, times(1)).hold(anyList());
+        verify(orderService, times(1)).ordersFromCart(7L);
+    }
+
+    @Test
+    void acceptedCheckoutIsRecordedWithItsStockHold() {
+        when(orderService.ordersFromCart(7L)).thenAnswer(invocation -> new ArrayList<>(List.of(order(5L, 2))));
+
+        OrderIntakeStatus accepted = service.submit(7L);
+
+        verify(intakeRepository).insert(eq(accepted.getReference()), eq(7L), eq("5|2|9.99|M"), any(), any());
+    }
+
+    @Test
+    void writerSkipsCheckoutsRecoveryAlreadySaved() throws Exception {
+        when(orderService.ordersFromCart(7L)).thenAnswer(invocation -> new ArrayList<>(List.of(order(5L, 2))));
+        service.submit(7L);
+        when(intakeRepository.lockAll(anyList())).thenReturn(List.of());
+
+        List<Object> batch = new ArrayList<>();
+        ((BlockingQueue<?>) ReflectionTestUtils.getField(service, "queue")).drainTo(batch);
+        ReflectionTestUtils.invokeMethod(service, "persist", batch);
+
+        verify(orderRepository).saveAll(List.of());
+        verify(stockReservationService, never()).abandon(anyList());
+    }
+
+    @Test
+    void recoveryReplaysOrphanedCheckoutsIntoHeldOrders() {
+        OrderIntake intake = new OrderIntake();
+        intake.setReference("ref");
+        intake.setUserId(7L);
+        intake.setLines("5|2|9.99|M");
+        intake.setReservedUntil(LocalDateTime.now().plusMinutes(10));
+        when(intakeRepository.findOrphans(any(), any())).thenReturn(List.of("ref"));
+        when(intakeRepository.lockAll(List.of("ref"))).thenReturn(List.of(intake));
+        when(productRepository.findAllById(anyList())).thenReturn(List.of(product(5L)));
+        when(userLookupService.getUser(7L)).thenReturn(new User());
+
+        service.recoverOrphans();
+
+        verify(orderRepository).saveAll(argThat((List<Order> orders) -> orders.size() == 1
+                && orders.get(0).getReservation() == Order.ReservationStatus.HELD
+                && orders.get(0).getQuantity() == 2
+                && "ref".equals(orders.get(0).getIntakeRef())));
+        verify(intakeRepository).deleteAllByIdInBatch(List.of("ref"));
+        verify(stockReservationService, never()).abandon(anyList());
+    }
+
+    @Test
+    void orphanThatCannotBeRebuiltGivesItsStockBack() {
+        OrderIntake intake = new OrderIntake();
+        intake.setReference("ref");
+        intake.setUserId(7L);
+        intake.setLines("5|2|9.99|");
+        when(intakeRepository.findOrphans(any(), any())).thenReturn(List.of("ref"));
+        when(intakeRepository.lockAll(List.of("ref"))).thenReturn(List.of(intake));
+        when(productRepository.findAllById(anyList())).thenReturn(List.of());
+
+        service.recoverOrphans();
+
+        verify(orderRepository, never()).saveAll(anyList());
+        verify(stockReservationService).abandon(argThat((List<Order> orders) -> orders.size() == 1
+                && orders.get(0).getProduct().getPid() == 5L && orders.get(0).getQuantity() == 2));
+        verify(intakeRepository).deleteAllByIdInBatch(List.of("ref"));
+    }
+
+    @Test
+    void statusStuckAtQueuedFallsBackToSavedOrders() {
+        when(hashes.entries(anyString())).thenReturn(Map.of("user", "7", "state", "QUEUED", "orders", "", "error", ""));
+        when(orderRepository.findIdsByIntakeRef("ref", 7L)).thenReturn(List.of(11L, 12L));
+
+        OrderIntakeStatus status = service.getStatus(7L, "ref");
+
+        assertEquals(OrderIntakeStatus.State.COMMITTED, status.getState());
+        assertEquals(List.of(11L, 12L), status.getOrderIds());
+        assertThrows(RuntimeException.class, () -> service.getStatus(8L, "ref"));
+    }
+
+    private static Product product(Long pid) {
+        Product product = new Product();
+        product.setPid(pid);
+        return product;
+    }
+
+    private static Order order(Long pid, int quantity) {
+        return new Order(new User(), product(pid), new BigDecimal("9.99"), quantity, "M");
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.CursorPage;
+import com.ecommerce.dto.OrderSummary;
+import com.ecommerce.entity.Order;
+import com.ecommerce.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderServiceTest {
+
+    private static final LocalDateTime MAY_2 = LocalDateTime.of(2024, 5, 2, 10, 0);
+    private static final LocalDateTime MAY_1 = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    private OrderService service;
+    private OrderRepository orderRepository;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(OrderRepository.class);
+        service = new OrderService();
+        ReflectionTestUtils.setField(service, "orderRepository", orderRepository);
+    }
+
+    @Test
+    void historyPagesContinueBelowTheLastRow() {
+        List<OrderSummary> rows = List.of(summary(30L, MAY_2), summary(20L, MAY_1), summary(10L, MAY_1));
+        when(orderRepository.findUserHistory(eq(7L), eq(null), any(), any(), any(), eq(PageRequest.of(0, 3))))
+                .thenReturn(rows);
+
+        CursorPage<OrderSummary> first = service.getUserOrderHistory(7L, null, 2, null, null, null);
+
+        assertEquals(2, first.getSize());
+        assertTrue(first.isHasNext());
+        OrderCursor next = OrderCursor.decode(first.getNextCursor());
+        assertEquals(MAY_1, next.getOrderDate());
+        assertEquals(20L, next.getId());
+
+        service.getUserOrderHistory(7L, first.getNextCursor(), 2, Order.OrderStatus.PENDING, null, null);
+        verify(orderRepository).findUserHistory(eq(7L), eq(Order.OrderStatus.PENDING), any(),
+                eq(MAY_1), eq(20L), eq(PageRequest.of(0, 3)));
+    }
+
+    @Test
+    void dateRangeEndCapsTheFirstPage() {
+        LocalDateTime from = LocalDateTime.of(2024, 4, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 5, 1, 0, 0);
+        when(orderRepository.findVendorHistory(eq(3L), eq(null), eq(from), eq(to), eq(0L), any()))
+                .thenReturn(List.of());
+
+        CursorPage<?> page = service.getVendorOrderHistory(3L, new OrderCursor(MAY_2, 99L).encode(), 20, null, from, to);
+
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+        verify(orderRepository).findVendorHistory(eq(3L), eq(null), eq(from), eq(to), eq(0L), any());
+    }
+
+    private static OrderSummary summary(Long id, LocalDateTime orderDate) {
+        OrderSummary summary = mock(OrderSummary.class);
+        when(summary.getId()).thenReturn(id);
+        when(summary.getOrderDate()).thenReturn(orderDate);
+        return summary;
+    }
+}
@@ -0,0 +1,78 @@
+package com.ecommerce.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService service;
+    private PasswordEncoder encoder;
+    private SimpleMeterRegistry registry;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        encoder = mock(PasswordEncoder.class);
+        registry = new SimpleMeterRegistry();
+        service = new PasswordHashingService();
+        ReflectionTestUtils.setField(service, "passwordEncoder", encoder);
+        ReflectionTestUtils.setField(service, "meterRegistry", registry);
+        ReflectionTestUtils.setField(service, "threads", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "timeoutMs", 5000L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void encodesOnPoolAndRecordsLatency() {
+        when(encoder.encode("secret")).thenReturn("hashed");
+
+        assertEquals("hashed", service.encode("secret"));
+        assertEquals(1, registry.get("auth.hashing.duration").tag("operation", "encode").timer().count());
+    }
+
+    @Test
+    void rejectsFastWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(encoder.encode(anyString())).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return "hashed";
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        callers.submit(() -> service.encode("a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        callers.submit(() -> service.encode("b"));
+        while (registry.get("auth.hashing.queue.depth").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        assertThrows(RejectedExecutionException.class, () -> service.encode("c"));
+        assertEquals(1.0, registry.get("auth.hashing.rejected").counter().count());
+        callers.shutdownNow();
+    }
+}
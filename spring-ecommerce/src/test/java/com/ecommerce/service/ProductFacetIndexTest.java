@@ -0,0 +1,75 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.FacetQuery;
+import com.ecommerce.dto.FacetResult;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductFacetIndex();
+        index.index(product(1L, "300", "S,M", 10L, 4.6, 5));
+        index.index(product(2L, "800", "M,L", 10L, 3.2, 0));
+        index.index(product(3L, "1200", "L", 20L, 0.0, 2));
+    }
+
+    @Test
+    void filtersCombineAcrossFacetsAndOrWithinFacet() {
+        FacetQuery query = new FacetQuery();
+        query.setSizes(List.of("m", "L"));
+        query.setInStock(true);
+
+        FacetResult<Long> result = index.search(query, 0, 10);
+
+        assertEquals(List.of(1L, 3L), result.getContent());
+        assertEquals(2, result.getTotalElements());
+    }
+
+    @Test
+    void facetCountsIgnoreTheirOwnSelection() {
+        FacetQuery query = new FacetQuery();
+        query.setVendors(List.of(10L));
+
+        FacetResult<Long> result = index.search(query, 0, 10);
+
+        assertEquals(2, result.getTotalElements());
+        assertEquals(2, result.getFacets().get(ProductFacetIndex.VENDOR).get("10"));
+        assertEquals(1, result.getFacets().get(ProductFacetIndex.VENDOR).get("20"));
+        assertEquals(1, result.getFacets().get(ProductFacetIndex.RATING).get("4+"));
+        assertEquals(2, result.getFacets().get(ProductFacetIndex.RATING).get("3+"));
+    }
+
+    @Test
+    void reindexMovesProductBetweenValues() {
+        index.index(product(2L, "800", "M,L", 10L, 3.2, 7));
+
+        FacetQuery query = new FacetQuery();
+        query.setInStock(true);
+
+        assertEquals(3, index.search(query, 0, 10).getTotalElements());
+    }
+
+    private static Product product(Long pid, String price, String sizes, Long vendorId, double rating, int stock) {
+        User vendor = new User();
+        vendor.setUserid(vendorId);
+        Product product = new Product();
+        product.setPid(pid);
+        product.setPrice(new BigDecimal(price));
+        product.setSizes(sizes);
+        product.setVendor(vendor);
+        product.setAverageRating(rating);
+        product.setStock(stock);
+        return product;
+    }
+}
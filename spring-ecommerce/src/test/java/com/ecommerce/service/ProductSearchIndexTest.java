@@ -0,0 +1,55 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.indexAll(List.of(
+                product(1L, "Polki Necklace Set", "Gold plated necklace with polki stones"),
+                product(2L, "Dangle Earrings", "Lightweight earrings to pair with a necklace"),
+                product(3L, "Silk Saree", "Handwoven silk with zari border")));
+    }
+
+    @Test
+    void nameMatchesRankAboveDetailMatches() {
+        assertEquals(List.of(1L, 2L), index.search("necklace", 10));
+    }
+
+    @Test
+    void lastWordMatchesAsPrefix() {
+        assertEquals(List.of(3L), index.search("handwo", 10));
+    }
+
+    @Test
+    void pluralsFoldToTheSameTerm() {
+        assertEquals(List.of(2L), index.search("earring", 10));
+    }
+
+    @Test
+    void reindexingReplacesOldTerms() {
+        index.index(product(3L, "Cotton Kurta", "Block printed cotton"));
+
+        assertTrue(index.search("silk", 10).isEmpty());
+        assertEquals(List.of(3L), index.search("kurta", 10));
+    }
+
+    private static Product product(Long pid, String name, String detail) {
+        Product product = new Product();
+        product.setPid(pid);
+        product.setName(name);
+        product.setDetail(detail);
+        return product;
+    }
+}
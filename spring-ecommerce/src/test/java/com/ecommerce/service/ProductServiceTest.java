@@ -0,0 +1,143 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.FacetQuery;
+import com.ecommerce.dto.ProductRatingSummary;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.ProductRepository;
+import com.ecommerce.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductServiceTest {
+
+    private ProductRepository productRepository;
+    private ReviewRepository reviewRepository;
+    private ProductService productService;
+    private ProductSearchIndex productSearchIndex;
+    private ProductFacetIndex productFacetIndex;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        reviewRepository = mock(ReviewRepository.class);
+
+        RatingAggregationService ratingAggregationService = new RatingAggregationService();
+        ReflectionTestUtils.setField(ratingAggregationService, "reviewRepository", reviewRepository);
+
+        productSearchIndex = new ProductSearchIndex();
+        productFacetIndex = new ProductFacetIndex();
+
+        productService = new ProductService();
+        ReflectionTestUtils.setField(productService, "productRepository", productRepository);
+        ReflectionTestUtils.setField(productService, "ratingAggregationService", ratingAggregationService);
+        ReflectionTestUtils.setField(productService, "cacheManager", new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(productService, "productCacheInvalidator", mock(ProductCacheInvalidator.class));
+        ReflectionTestUtils.setField(productService, "productSearchIndex", productSearchIndex);
+        ReflectionTestUtils.setField(productService, "productFacetIndex", productFacetIndex);
+    }
+
+    @Test
+    void remoteChangeReloadsTheProductIntoTheSearchIndex() {
+        Product product = new Product();
+        product.setPid(3L);
+        product.setName("Blue linen shirt");
+        when(productRepository.findById(3L)).thenReturn(Optional.of(product));
+
+        productService.applyRemoteChange(3L);
+        assertEquals(List.of(3L), productSearchIndex.search("linen", 10));
+
+        when(productRepository.findById(3L)).thenReturn(Optional.empty());
+        productService.applyRemoteChange(3L);
+        assertEquals(List.of(), productSearchIndex.search("linen", 10));
+    }
+
+    @Test
+    void pageOfProductsLoadsRatingsWithSingleQuery() {
+        Pageable pageable = PageRequest.of(0, 50);
+        List<Product> products = new ArrayList<>();
+        for (long pid = 1; pid <= 50; pid++) {
+            Product product = new Product();
+            product.setPid(pid);
+            products.add(product);
+        }
+        when(productRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(products, pageable, 500));
+        when(reviewRepository.getRatingSummariesByProductIds(anyCollection()))
+                .thenReturn(List.of(summary(7L, 4.5, 2L)));
+
+        Page<Product> page = productService.getAllProducts(pageable);
+
+        verify(reviewRepository, times(1)).getRatingSummariesByProductIds(anyCollection());
+        verify(reviewRepository, never()).getAverageRatingByProductId(anyLong());
+        verify(reviewRepository, never()).getReviewCountByProductId(anyLong());
+
+        Product rated = page.getContent().get(6);
+        assertEquals(4.5, rated.getAverageRating());
+        assertEquals(2L, rated.getReviewCount());
+        Product unrated = page.getContent().get(0);
+        assertEquals(0.0, unrated.getAverageRating());
+        assertEquals(0L, unrated.getReviewCount());
+    }
+
+    @Test
+    void repeatedPageIsServedFromListCache() {
+        Pageable pageable = PageRequest.of(0, 10);
+        Product product = new Product();
+        product.setPid(1L);
+        when(productRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(product), pageable, 1));
+
+        productService.getAllProducts(pageable);
+        Page<Product> cached = productService.getAllProducts(pageable);
+
+        verify(productRepository, times(1)).findAll(any(Pageable.class));
+        verify(reviewRepository, times(1)).getRatingSummariesByProductIds(anyCollection());
+        assertEquals(1, cached.getTotalElements());
+    }
+
+    @Test
+    void remoteStockChangeMovesTheProductOutOfTheInStockFacet() {
+        Product product = new Product();
+        product.setPid(3L);
+        product.setName("Blue linen shirt");
+        product.setPrice(new BigDecimal("900"));
+        product.setStock(4);
+        when(productRepository.findById(3L)).thenReturn(Optional.of(product));
+        productService.applyRemoteChange(3L);
+        FacetQuery inStock = new FacetQuery();
+        inStock.setInStock(true);
+        assertEquals(List.of(3L), productFacetIndex.search(inStock, 0, 10).getContent());
+
+        product.setStock(0);
+        productService.applyRemoteChange(3L);
+
+        assertEquals(List.of(), productFacetIndex.search(inStock, 0, 10).getContent());
+    }
+
+    private static ProductRatingSummary summary(Long pid, Double averageRating, Long reviewCount) {
+        return new ProductRatingSummary() {
+            public Long getPid() { return pid; }
+            public Double getAverageRating() { return averageRating; }
+            public Long getReviewCount() { return reviewCount; }
+        };
+    }
+}
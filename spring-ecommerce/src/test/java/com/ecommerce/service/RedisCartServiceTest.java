@@ -0,0 +1,182 @@
+package com.ecommerce.service;
+
+import com.ecommerce.dto.BulkCartRequest;
+import com.ecommerce.entity.Cart;
+import com.ecommerce.entity.Product;
+import com.ecommerce.entity.User;
+import com.ecommerce.repository.CartRepository;
+import com.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisCartServiceTest {
+
+    private RedisCartService service;
+    private ProductRepository productRepository;
+    private CartRepository cartRepository;
+    private CartWriteBehindService writeBehind;
+    private HashOperations<String, Object, Object> hashes;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        cartRepository = mock(CartRepository.class);
+        writeBehind = mock(CartWriteBehindService.class);
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        when(redis.hasKey(anyString())).thenReturn(true);
+        hashes = mock(HashOperations.class);
+        when(redis.opsForHash()).thenReturn(hashes);
+        when(writeBehind.isEnabled()).thenReturn(true);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+
+        service = new RedisCartService();
+        ReflectionTestUtils.setField(service, "productRepository", productRepository);
+        ReflectionTestUtils.setField(service, "cartRepository", cartRepository);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "writeBehind", writeBehind);
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(service, "maxBulkItems", 100);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void bulkAddMergesRepeatedLinesAndWritesOnce() {
+        when(productRepository.findAllById(any())).thenReturn(List.of(product(1L, 10), product(2L, 5)));
+        when(writeBehind.addAllOrMerge(eq(7L), anyList(), anyMap())).thenAnswer(invocation -> {
+            List<CartLine> lines = invocation.getArgument(1);
+            return lines.stream()
+                    .map(line -> new CartLine(100L + line.pid(), line.pid(), line.quantity(), line.price(), line.addedAt(), line.size()))
+                    .toList();
+        });
+
+        List<Cart> carts = service.addAllToCart(7L, List.of(
+                new BulkCartRequest.Item(1L, 2, "M"),
+                new BulkCartRequest.Item(2L, null, null),
+                new BulkCartRequest.Item(1L, 3, "M")));
+
+        ArgumentCaptor<List<CartLine>> lines = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Map<Long, Integer>> ceilings = ArgumentCaptor.forClass(Map.class);
+        verify(productRepository, times(1)).findAllById(any());
+        verify(writeBehind, times(1)).addAllOrMerge(eq(7L), lines.capture(), ceilings.capture());
+        assertEquals(2, lines.getValue().size());
+        assertEquals(5, lines.getValue().get(0).quantity());
+        assertEquals(1, lines.getValue().get(1).quantity());
+        assertEquals(Map.of(1L, 10, 2L, 5), ceilings.getValue());
+        assertEquals(2, carts.size());
+        assertEquals(101L, carts.get(0).getId());
+    }
+
+    @Test
+    void bulkAddRejectsWholeBatchAndReportsEveryBadLine() {
+        when(productRepository.findAllById(any())).thenReturn(List.of(product(1L, 10), product(2L, 1)));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.addAllToCart(7L, List.of(
+                new BulkCartRequest.Item(1L, 2, null),
+                new BulkCartRequest.Item(2L, 4, null),
+                new BulkCartRequest.Item(3L, 1, null))));
+
+        assertTrue(e.getMessage().contains("Insufficient stock for product-2. Available: 1"));
+        assertTrue(e.getMessage().contains("Product 3 not found"));
+        verify(writeBehind, never()).addAllOrMerge(any(), anyList(), anyMap());
+    }
+
+    @Test
+    void movingALineOntoAnExistingSizeMergesTheRows() {
+        when(writeBehind.isEnabled()).thenReturn(false);
+        Product product = product(1L, 10);
+        Cart medium = cart(21L, product, 2, "M");
+        Cart large = cart(22L, product, 3, "L");
+        when(cartRepository.findById(21L)).thenReturn(Optional.of(medium));
+        when(cartRepository.findFirstByUserUseridAndProductPidAndSize(7L, 1L, "L")).thenReturn(Optional.of(large));
+        when(cartRepository.addQuantityWithinLimit(22L, 2, 10)).thenReturn(1);
+        when(cartRepository.findById(22L)).thenReturn(Optional.of(cart(22L, product, 5, "L")));
+
+        Cart merged = service.updateCart(7L, 21L, null, "L");
+
+        assertEquals(22L, merged.getId());
+        assertEquals(5, merged.getQuantity());
+        verify(cartRepository).deleteById(21L);
+        verify(cartRepository, never()).save(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void duplicateRowsAreMergedInMysqlWithoutWriteBehind() {
+        when(writeBehind.isEnabled()).thenReturn(false);
+        Product product = product(1L, 10);
+        when(hashes.entries(anyString())).thenReturn(Map.of());
+        when(cartRepository.findByUserUserid(7L)).thenReturn(List.of(
+                cart(21L, product, 2, "M"), cart(22L, product, 3, "M")));
+
+        List<Cart> carts = service.getUserCart(7L);
+
+        assertEquals(1, carts.size());
+        assertEquals(5, carts.get(0).getQuantity());
+        verify(cartRepository).saveAll(argThat((Collection<Cart> raised) -> raised.size() == 1
+                && raised.iterator().next().getId() == 21L && raised.iterator().next().getQuantity() == 5));
+        verify(cartRepository).deleteAllByIdInBatch(List.of(22L));
+    }
+
+    private static Cart cart(Long id, Product product, int quantity, String size) {
+        Cart cart = new Cart();
+        cart.setId(id);
+        cart.setUser(user(7L));
+        cart.setProduct(product);
+        cart.setPrice(product.getPrice());
+        cart.setQuantity(quantity);
+        cart.setSize(size);
+        return cart;
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setUserid(id);
+        return user;
+    }
+
+    private static Product product(Long pid, int stock) {
+        Product product = new Product();
+        product.setPid(pid);
+        product.setName("product-" + pid);
+        product.setPrice(new BigDecimal("9.99"));
+        product.setStock(stock);
+        return product;
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+
+    private RefreshTokenService service;
+    private StringRedisTemplate redis;
+    private ValueOperations<String, String> values;
+    private JwtService jwtService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redis = mock(StringRedisTemplate.class);
+        values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        jwtService = mock(JwtService.class);
+        when(jwtService.getRefreshTokenExpiration()).thenReturn(604800000L);
+        when(jwtService.generateRefreshToken(any(), anyString(), anyString())).thenReturn("next");
+
+        service = new RefreshTokenService();
+        ReflectionTestUtils.setField(service, "jwtService", jwtService);
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(service, "revoked", new RevocationBloomFilter(1000, 0.01));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rotationRevokesNothing() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+
+        assertEquals("next", service.rotate(claims("family-1", "token-1"), new User()));
+
+        verify(values, never()).set(anyString(), anyString(), anyLong(), any(TimeUnit.class));
+        verify(redis, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replayedTokenRevokesItsFamily() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(-1L);
+
+        assertThrows(RuntimeException.class, () -> service.rotate(claims("family-1", "token-1"), new User()));
+
+        verify(redis).delete("auth:refresh:family:family-1");
+        verify(values).set(eq("auth:refresh:revoked:family-1"), eq("1"), eq(604800000L), eq(TimeUnit.MILLISECONDS));
+        verify(redis).convertAndSend("auth:refresh:revoked", "family-1");
+    }
+
+    private static Claims claims(String familyId, String tokenId) {
+        Claims claims = Jwts.claims();
+        claims.put("family", familyId);
+        claims.put("tokenType", "REFRESH");
+        claims.setId(tokenId);
+        claims.setExpiration(new Date(System.currentTimeMillis() + 60000));
+        return claims;
+    }
+}
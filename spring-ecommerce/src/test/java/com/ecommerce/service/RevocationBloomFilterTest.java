@@ -0,0 +1,35 @@
+package com.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevocationBloomFilterTest {
+
+    @Test
+    void insertedIdsAreAlwaysReported() {
+        RevocationBloomFilter filter = new RevocationBloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("token-" + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("token-" + i));
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        RevocationBloomFilter filter = new RevocationBloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) falsePositives++;
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,157 @@
+package com.ecommerce.service;
+
+import com.ecommerce.entity.Order;
+import com.ecommerce.entity.Product;
+import com.ecommerce.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockReservationServiceTest {
+
+    private StockReservationService service;
+    private JdbcTemplate jdbcTemplate;
+    private OrderRepository orderRepository;
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        orderRepository = mock(OrderRepository.class);
+        entityManager = mock(EntityManager.class);
+        when(entityManager.find(eq(Product.class), any())).thenAnswer(invocation -> product(invocation.getArgument(1)));
+
+        service = new StockReservationService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(service, "productService", mock(ProductService.class));
+        ReflectionTestUtils.setField(service, "entityManager", entityManager);
+        ReflectionTestUtils.setField(service, "flashSale", mock(FlashSaleInventoryService.class));
+        ReflectionTestUtils.setField(service, "holdMinutes", 60L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void holdTakesAllLinesInOneBatchInPidOrder() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+        Order first = order(9L, 2);
+        Order second = order(3L, 1);
+        Order sameProduct = order(9L, 1);
+
+        service.hold(List.of(first, second, sameProduct));
+
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), args.capture());
+        assertEquals(2, args.getValue().size());
+        assertArrayEquals(new Object[]{1, 3L, 1}, args.getValue().get(0));
+        assertArrayEquals(new Object[]{3, 9L, 3}, args.getValue().get(1));
+        assertEquals(Order.ReservationStatus.HELD, first.getReservation());
+        assertNotNull(first.getReservedUntil());
+    }
+
+    @Test
+    void shortfallNamesTheLinesThatFailedWithLiveStock() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("pid")).thenReturn(9L);
+        when(rs.getString("name")).thenReturn("Jacket");
+        when(rs.getInt("stock")).thenReturn(1);
+        doAnswer(invocation -> {
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.hold(List.of(order(3L, 1), order(9L, 2))));
+
+        assertEquals("Insufficient stock for product: Jacket. Available: 1, Requested: 2", e.getMessage());
+    }
+
+    @Test
+    void cancellingReturnsStockOnlyIfTheReservationWasStillHeld() {
+        Order order = order(5L, 2);
+        order.setId(1L);
+        when(orderRepository.transitionReservation(1L, Order.ReservationStatus.HELD,
+                Order.ReservationStatus.RELEASED, null)).thenReturn(1, 0);
+
+        service.release(order);
+        service.release(order);
+
+        verify(jdbcTemplate).update(anyString(), eq(2), eq(5L));
+    }
+
+    @Test
+    void deliveringAHeldOrderLeavesStockAlone() {
+        Order order = order(5L, 2);
+        order.setId(1L);
+        when(orderRepository.transitionReservation(1L, Order.ReservationStatus.HELD,
+                Order.ReservationStatus.CONSUMED, null)).thenReturn(1);
+
+        service.consume(order);
+
+        verify(orderRepository, never()).reserveUnheld(anyLong(), any(), isNull(), any());
+        verify(jdbcTemplate, never()).update(anyString(), anyInt(), anyLong());
+        assertEquals(Order.ReservationStatus.CONSUMED, order.getReservation());
+    }
+
+    @Test
+    void expiredHoldReturnsStockButLeavesTheOrderPending() {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "sweepBatchSize", 100);
+        Order order = order(5L, 2);
+        order.setId(1L);
+        when(orderRepository.findExpiredReservations(eq(Order.ReservationStatus.HELD), any(), any()))
+                .thenReturn(List.of(1L));
+        when(orderRepository.transitionReservation(1L, Order.ReservationStatus.HELD,
+                Order.ReservationStatus.RELEASED, null)).thenReturn(1);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+
+        service.releaseExpired();
+
+        verify(jdbcTemplate).update(anyString(), eq(2), eq(5L));
+        verify(orderRepository, never()).save(any());
+        assertEquals(Order.OrderStatus.PENDING, order.getStatus());
+    }
+
+    private static Order order(Long pid, int quantity) {
+        return new Order(null, product(pid), new BigDecimal("10.00"), quantity, null);
+    }
+
+    private static Product product(Long pid) {
+        Product product = new Product();
+        product.setPid(pid);
+        product.setName("product-" + pid);
+        return product;
+    }
+}